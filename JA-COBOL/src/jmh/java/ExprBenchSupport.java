@@ -0,0 +1,123 @@
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * ExprBenchmark 的被测代码
+ * JMH 要求基准类放在具名包中，而解释器在默认包里，所以实际工作放在这里，
+ * 基准类只通过 Function / LongSupplier 调用。
+ * 两种方式都执行 1M 次 COMPUTE C = A * 2 + (B - 3) / D - T(I)：
+ * - "legacy"：每次重新解析表达式文本（原 ExprParser 的做法）
+ * - "compiled"：执行编译好的 Stmt.Compute 节点
+ */
+public class ExprBenchSupport implements Function<String, LongSupplier> {
+    static final int ITERATIONS = 1_000_000;
+    static final String EXPR = "A * 2 + (B - 3) / D - T(I)";
+
+    private final CobolRun rt;
+    private final CobolCompiler compiler = new CobolCompiler();
+    private final Stmt.Ref target;
+    private final Stmt.Ref[] refs;
+
+    public ExprBenchSupport() {
+        compiler.compile(List.of(
+                "DATA DIVISION.",
+                "WORKING-STORAGE SECTION.",
+                "01 A PIC S9(9) VALUE 12345.",
+                "01 B PIC S9(9) VALUE 678.",
+                "01 C PIC S9(12).",
+                "01 D PIC S9(4) COMP VALUE 7.",
+                "01 I PIC 9(2) VALUE 3.",
+                "01 TAB.",
+                "   05 T PIC 9(5) OCCURS 10 VALUE 42.",
+                "PROCEDURE DIVISION.",
+                "    COMPUTE C = " + EXPR + ".",
+                "    STOP RUN."));
+        rt = new CobolRun(compiler.program(), false, null);
+        target = compiler.ref("C");
+        refs = new Stmt.Ref[compiler.specs.size()];
+        for (Map.Entry<String, Integer> e : compiler.slots.entrySet()) refs[e.getValue()] = compiler.ref(e.getKey());
+    }
+
+    @Override public LongSupplier apply(String mode) {
+        return switch (mode) {
+            case "legacy" -> this::legacy;
+            case "compiled" -> this::compiled;
+            default -> throw new IllegalArgumentException(mode);
+        };
+    }
+
+    private long legacy() {
+        for (int i = 0; i < ITERATIONS; i++) {
+            Long val;
+            try { val = new LegacyExprParser(EXPR).parseExpression(); }
+            catch (Exception e) { val = null; }
+            if (val != null) rt.storeNumber(target, val);
+        }
+        return rt.num(target);
+    }
+
+    private long compiled() {
+        Stmt compute = compiler.procedure[0];
+        for (int i = 0; i < ITERATIONS; i++) compute.exec(rt);
+        return rt.num(target);
+    }
+
+    /** 改为编译表达式之前的求值方式：每次执行都解析文本、按名字查槽位 */
+    private class LegacyExprParser {
+        private final String s;
+        private int idx = 0;
+        LegacyExprParser(String s) { this.s = s; }
+        long parseExpression() {
+            long v = parseTerm();
+            while (true) {
+                skipWhitespace();
+                if (peek() == '+') { idx++; v += parseTerm(); }
+                else if (peek() == '-') { idx++; v -= parseTerm(); }
+                else break;
+            }
+            return v;
+        }
+        long parseTerm() {
+            long v = parseFactor();
+            while (true) {
+                skipWhitespace();
+                if (peek() == '*') { idx++; v *= parseFactor(); }
+                else if (peek() == '/') { idx++; v /= parseFactor(); }
+                else break;
+            }
+            return v;
+        }
+        long parseFactor() {
+            skipWhitespace();
+            char c = peek();
+            if (c == '(') { idx++; long v = parseExpression(); skipWhitespace(); if (peek() == ')') idx++; return v; }
+            if (c == '+' || c == '-' || Character.isDigit(c)) {
+                int start = idx; if (c == '+' || c == '-') idx++;
+                while (Character.isDigit(peek())) idx++;
+                return Long.parseLong(s.substring(start, idx).trim());
+            }
+            int start = idx;
+            while (Character.isLetterOrDigit(peek()) || peek() == '-') idx++;
+            Integer slot = compiler.slots.get(s.substring(start, idx));
+            if (slot == null) return 0;
+            CobolInterpreter.VarSpec vs = compiler.specs.get(slot);
+            if (vs != null && vs.counts.length > 0 && peek() == '(') {
+                idx++;
+                int offset = vs.offset;
+                for (int k = 0; k < vs.counts.length; k++) {
+                    offset += (int) (parseExpression() - 1) * vs.strides[k];
+                    skipWhitespace();
+                    if (peek() == ',') idx++;
+                }
+                skipWhitespace();
+                if (peek() == ')') idx++;
+                return rt.storage().getZoned(offset, vs.length);
+            }
+            return rt.operandValue(refs[slot]);
+        }
+        char peek() { return idx >= s.length() ? '\0' : s.charAt(idx); }
+        void skipWhitespace() { while (Character.isWhitespace(peek())) idx++; }
+    }
+}
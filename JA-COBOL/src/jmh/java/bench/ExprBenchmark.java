@@ -0,0 +1,47 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * COMPUTE 表达式：每次解析文本 vs 编译后的 Expr 树，每次调用执行 1M 次 COMPUTE
+ * 运行：gradle jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExprBenchmark {
+    private LongSupplier legacy;
+    private LongSupplier compiled;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws ReflectiveOperationException {
+        // 被测代码在默认包中，具名包不能直接引用，只能反射创建
+        Function<String, LongSupplier> support = (Function<String, LongSupplier>)
+                Class.forName("ExprBenchSupport").getDeclaredConstructor().newInstance();
+        legacy = support.apply("legacy");
+        compiled = support.apply("compiled");
+    }
+
+    @Benchmark
+    public long legacyParser() { return legacy.getAsLong(); }
+
+    @Benchmark
+    public long compiledTree() { return compiled.getAsLong(); }
+}
@@ -0,0 +1,485 @@
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * 字节码层
+ * 把编译好的 Stmt 树翻译成一个 Java 类：每个段落一个方法，返回下一个要执行的段落（GO TO 的目标、
+ * 顺序贯穿或结束），由 range 循环按段落编号分派，GO TO 循环不占用 Java 栈；PERFORM A THRU B
+ * 是对 range 的调用。IF / EVALUATE 成为 Java 控制流，COMPUTE 表达式成为 long 运算，
+ * 没有下标的字段按常量偏移量直接读写记录，其余节点通过 exec 调用（每个调用点只有一种节点，JIT 可以内联）。
+ * 生成的源码用 javac 在内存中编译，再作为隐藏类加载；隐藏类的 final 字段被 JIT 当作常量。
+ * 运行环境没有 javac（只有 JRE）或生成的源码编译不通过时抛出 Unavailable（带原因与 javac 的诊断），
+ * 由解释器执行；生成器自身的错误不在这里捕获。
+ */
+final class BytecodeTier {
+    /** 生成的类实现这个接口 */
+    interface Program {
+        void run(CobolRun rt);
+    }
+
+    private static final String CLASS_NAME = "CobolCompiledProgram";
+    // 段落方法的返回值：非负数是 GO TO 的目标段落
+    private static final int END = -1, FALL_THROUGH = -2;
+
+    private final CobolProgram program;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, String> constantNames = new IdentityHashMap<>();
+    private final Map<String, Integer> index = new HashMap<>();   // 段落名 -> 编号，0 是第一个段落之前的语句
+    private final StringBuilder out = new StringBuilder();
+    private int temp;
+
+    private BytecodeTier(CobolProgram program) { this.program = program; }
+
+    /** 不能编译成字节码的原因 */
+    static final class Unavailable extends Exception {
+        private static final long serialVersionUID = 1L;
+        Unavailable(String message) { super(message); }
+        Unavailable(String message, Throwable cause) { super(message + ": " + cause, cause); }
+    }
+
+    /** 编译成隐藏类 */
+    static Program compile(CobolProgram program) throws Unavailable {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) throw new Unavailable("no system Java compiler (running on a JRE)");
+        BytecodeTier tier = new BytecodeTier(program);
+        String source = tier.generate();
+        byte[] bytes = javac(javac, source);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (Program) lookup.lookupClass().getDeclaredConstructor(Object[].class)
+                    .newInstance((Object) tier.constants.toArray());
+        } catch (ReflectiveOperationException e) {
+            throw new Unavailable("cannot load generated class", e);
+        }
+    }
+
+    // === 源码生成 ===
+    private String generate() {
+        List<Stmt[]> blocks = new ArrayList<>();
+        blocks.add(program.procedure);
+        for (Map.Entry<String, Stmt[]> e : program.paragraphs.entrySet()) {
+            index.put(e.getKey(), blocks.size());
+            blocks.add(e.getValue());
+        }
+
+        out.append("    public void run(CobolRun rt) { range(rt, 0, -1); }\n");
+        out.append("    private int range(CobolRun rt, int p, int thru) {\n");
+        out.append("        while (p < ").append(blocks.size()).append(") {\n");
+        out.append("            int r = paragraph(rt, p);\n");
+        out.append("            if (r == ").append(END).append(") return ").append(END).append(";\n");
+        out.append("            if (r != ").append(FALL_THROUGH).append(") p = r;\n");
+        out.append("            else if (p == thru) return 0;\n");
+        out.append("            else p++;\n");
+        out.append("        }\n");
+        out.append("        return ").append(END).append(";\n");
+        out.append("    }\n");
+        out.append("    private int paragraph(CobolRun rt, int p) {\n");
+        out.append("        switch (p) {\n");
+        for (int i = 0; i < blocks.size(); i++) out.append("            case ").append(i).append(": return p").append(i).append("(rt);\n");
+        out.append("            default: return ").append(END).append(";\n");
+        out.append("        }\n");
+        out.append("    }\n");
+        for (int i = 0; i < blocks.size(); i++) method("p" + i, blocks.get(i));
+
+        StringBuilder src = new StringBuilder();
+        src.append("final class ").append(CLASS_NAME).append(" implements BytecodeTier.Program {\n");
+        for (Object k : constants) {
+            src.append("    private final ").append(k.getClass().getCanonicalName()).append(' ')
+                    .append(constantNames.get(k)).append(";\n");
+        }
+        src.append("    ").append(CLASS_NAME).append("(Object[] k) {\n");
+        for (int i = 0; i < constants.size(); i++) {
+            Object k = constants.get(i);
+            src.append("        this.").append(constantNames.get(k)).append(" = (")
+                    .append(k.getClass().getCanonicalName()).append(") k[").append(i).append("];\n");
+        }
+        src.append("    }\n");
+        src.append(out);
+        src.append("}\n");
+        return src.toString();
+    }
+
+    /** 常量（Ref、节点、映像等）作为生成类的 final 字段 */
+    private String k(Object value) {
+        String name = constantNames.get(value);
+        if (name != null) return name;
+        name = "k" + constants.size();
+        constants.add(value);
+        constantNames.put(value, name);
+        return name;
+    }
+
+    private void method(String name, Stmt[] block) {
+        out.append("    private int ").append(name).append("(CobolRun rt) {\n");
+        out.append("        Storage s = rt.storage();\n");
+        if (!block(block, "        ")) out.append("        return ").append(FALL_THROUGH).append(";\n");
+        out.append("    }\n");
+    }
+
+    /** 生成一个块，以无条件 return 结束时返回 true（后面的语句不可达） */
+    private boolean block(Stmt[] block, String indent) {
+        for (Stmt stmt : block) {
+            if (stmt(stmt, indent)) return true;
+        }
+        return false;
+    }
+
+    /** 生成一条语句，以无条件 return 结束时返回 true */
+    private boolean stmt(Stmt stmt, String in) {
+        if (stmt instanceof Stmt.StopRun) {
+            line(in, "return " + END + ";");
+            return true;
+        }
+        if (stmt instanceof Stmt.Continue) return false;
+        if (stmt instanceof Stmt.Goto g) {
+            Integer target = index.get(g.label);
+            if (target == null) return false;
+            line(in, "return " + target + ";");
+            return true;
+        }
+        if (stmt instanceof Stmt.Perform p) {
+            if (p.label != null && !index.containsKey(p.label)) return false;
+            return perform(p, in);
+        }
+        if (stmt instanceof Stmt.If f) {
+            line(in, "if (" + condition(f.condition) + ") {");
+            boolean thenEnds = block(f.thenBlock, in + "    ");
+            line(in, "} else {");
+            boolean elseEnds = block(f.elseBlock, in + "    ");
+            line(in, "}");
+            return thenEnds && elseEnds;
+        }
+        if (stmt instanceof Stmt.Evaluate e) {
+            evaluate(e, in);
+            return false;
+        }
+        if (stmt instanceof Stmt.Compute c) {
+            if (c.expr == null) return false;
+            if (hasDivide(c.expr)) {
+                // 除以 0 时目标不变
+                int t = temp++;
+                line(in, "boolean ok" + t + " = true;");
+                line(in, "long v" + t + " = 0;");
+                line(in, "try { v" + t + " = " + expr(c.expr) + "; } catch (ArithmeticException e) { ok" + t + " = false; }");
+                line(in, "if (ok" + t + ") " + store(c.target, "v" + t) + ";");
+            } else {
+                line(in, store(c.target, expr(c.expr)) + ";");
+            }
+            return false;
+        }
+        if (stmt instanceof Stmt.MoveBytes m) {
+            line(in, "s.put(" + offset(m.target) + ", " + m.image.length + ", " + k(m.image) + ");");
+            return false;
+        }
+        if (stmt instanceof Stmt.MoveField m) {
+            line(in, "s.move(" + offset(m.source) + ", " + m.source.length() + ", "
+                    + offset(m.target) + ", " + m.target.length() + ");");
+            return false;
+        }
+        if (stmt instanceof Stmt.MoveNumber m) {
+            line(in, store(m.target, number(m.source)) + ";");
+            return false;
+        }
+        if (stmt instanceof Stmt.NumArith a && zoned(a.target)) {
+            numArith(a, in);
+            return false;
+        }
+        // 其它节点（DISPLAY、ACCEPT、COMP / COMP-3 运算等）直接调用
+        line(in, k(stmt) + ".exec(rt);");
+        return false;
+    }
+
+    // === PERFORM ===
+    /** 循环体：段落范围交给 range，内联语句直接展开 */
+    private boolean body(Stmt.Perform p, String in) {
+        if (p.label == null) return block(p.body, in);
+        int from = index.get(p.label);
+        Integer thru = p.thru != null ? index.get(p.thru) : null;
+        if (thru == null || thru < from) thru = from;
+        line(in, "if (range(rt, " + from + ", " + thru + ") == " + END + ") return " + END + ";");
+        return false;
+    }
+
+    private boolean perform(Stmt.Perform p, String in) {
+        if (p.times != null) {
+            String c = "c" + temp++;
+            line(in, "{");
+            line(in, "    long " + c + ";");
+            line(in, "    " + loopOperand(c, expr(p.times)));
+            line(in, "    for (; " + c + " > 0; " + c + "--) {");
+            body(p, in + "        ");
+            line(in, "    }");
+            line(in, "}");
+            return false;
+        }
+        if (p.varying.length > 0) return varying(p, in);
+        if (!p.loop) return body(p, in);
+        if (p.until == null) {
+            // 没有条件：只能由 GO TO / STOP RUN 离开
+            line(in, "for (;;) {");
+            body(p, in + "    ");
+            line(in, "}");
+            return true;
+        }
+        if (p.testAfter) {
+            line(in, "do {");
+            body(p, in + "    ");
+            line(in, "} while (!" + condition(p.until) + ");");
+        } else {
+            line(in, "while (!" + condition(p.until) + ") {");
+            body(p, in + "    ");
+            line(in, "}");
+        }
+        return false;
+    }
+
+    /**
+     * VARYING ... AFTER ...：每层一个 while，寄存器模式的变量是 long 局部变量。
+     * 没有 UNTIL 的一层是 for (;;)，只能由 GO TO / STOP RUN 离开，此时返回 true
+     */
+    private boolean varying(Stmt.Perform p, String in) {
+        String[] regs = new String[p.varying.length];
+        for (int i = 0; i < regs.length; i++) regs[i] = "r" + temp++;
+        line(in, "{");
+        String inner = in + "    ";
+        for (int i = 0; i < regs.length; i++) {
+            if (p.varying[i].register) line(inner, "long " + regs[i] + ";");
+            line(inner, varySet(p.varying[i], regs[i]));
+        }
+        boolean forever = varyLevel(p, regs, 0, inner);
+        line(in, "}");
+        return forever;
+    }
+
+    /** 本层没有 UNTIL（循环不会正常结束）时返回 true，外层在它后面的步进不可达、不再生成 */
+    private boolean varyLevel(Stmt.Perform p, String[] regs, int i, String in) {
+        Stmt.Varying v = p.varying[i];
+        if (v.until == null) {
+            line(in, "for (;;) {");
+        } else {
+            String test = v.registerTest()
+                    ? "(" + regs[i] + " " + javaOp(((Stmt.Condition) v.until).op) + " "
+                            + operand(((Stmt.Condition) v.until).right) + ")"
+                    : condition(v.until);
+            line(in, "while (!" + test + ") {");
+        }
+        String inner = in + "    ";
+        if (i == regs.length - 1) {
+            if (!body(p, inner)) line(inner, varyStep(v, regs[i]));
+        } else if (!varyLevel(p, regs, i + 1, inner)) {
+            line(inner, varyStep(v, regs[i]));
+            line(inner, varySet(p.varying[i + 1], regs[i + 1]));
+        }
+        line(in, "}");
+        return v.until == null;
+    }
+
+    private String varySet(Stmt.Varying v, String reg) {
+        return varyStore(v, reg, expr(v.from));
+    }
+
+    private String varyStep(Stmt.Varying v, String reg) {
+        String old = v.register ? reg : number(v.var);
+        return varyStore(v, reg, old + " + " + expr(v.by));
+    }
+
+    private String varyStore(Stmt.Varying v, String reg, String value) {
+        String t = "t" + temp++;
+        String eval = "long " + t + "; " + loopOperand(t, value) + " ";
+        if (!v.register) return "{ " + eval + store(v.var, t) + "; }";
+        return "{ " + eval + reg + " = " + k(v.var.spec) + ".stored(" + t + "); " + store(v.var, t) + "; }";
+    }
+
+    /** 循环操作数赋给 var，除以 0 时同解释器的 Code.Loop.eval 报错 */
+    private static String loopOperand(String var, String value) {
+        return "try { " + var + " = " + value + "; } catch (ArithmeticException e) { throw CobolRun.loopDivideByZero(); }";
+    }
+
+    /** 分支的选择由节点完成（查找表），各分支的语句放在 switch 中；共用语句的 WHEN 合并成多个 case */
+    private void evaluate(Stmt.Evaluate e, String in) {
+        line(in, "switch (" + k(e) + ".select(rt)) {");
+        for (int i = 0; i < e.arms.length; i++) {
+            if (i + 1 < e.arms.length && e.arms[i + 1].body == e.arms[i].body) {
+                line(in, "    case " + i + ":");
+                continue;
+            }
+            line(in, "    case " + i + ": {");
+            if (!block(e.arms[i].body, in + "        ")) line(in, "        break;");
+            line(in, "    }");
+        }
+        line(in, "}");
+    }
+
+    private void numArith(Stmt.NumArith a, String in) {
+        CobolInterpreter.VarSpec t = a.target.spec;
+        String off = Integer.toString(a.target.base);
+        String value = a.source == null ? a.literal + "L" : number(a.source);
+        String old = "s.getZoned(" + off + ", " + t.length + ")";
+        String put = "s.putZoned(" + off + ", " + t.length + ", " + t.signed + ", ";
+        switch (a.op) {
+            case Stmt.Arith.ADD -> line(in, put + old + " + " + value + ");");
+            case Stmt.Arith.SUBTRACT -> line(in, put + old + " - " + value + ");");
+            case Stmt.Arith.MULTIPLY -> line(in, put + old + " * " + value + ");");
+            default -> {
+                String v = "v" + temp++;
+                line(in, "long " + v + " = " + value + ";");
+                line(in, "if (" + v + " != 0) " + put + old + " / " + v + ");");
+                line(in, "else rt.display(\"ERROR: DIVIDE BY ZERO\");");
+            }
+        }
+    }
+
+    // === 表达式与条件 ===
+    /** AND / OR / NOT 直接变成 Java 的短路运算，数值关系条件内联比较，其它条件调用节点 */
+    private String condition(Predicate p) {
+        if (p == null) return "false";
+        if (p instanceof Predicate.And a) return "(" + condition(a.left) + " && " + condition(a.right) + ")";
+        if (p instanceof Predicate.Or o) return "(" + condition(o.left) + " || " + condition(o.right) + ")";
+        if (p instanceof Predicate.Not n) return "!" + condition(n.operand);
+        if (!(p instanceof Stmt.Condition c)) return k(p) + ".test(rt)";
+        if (c.numeric && !c.packed) {
+            String op = javaOp(c.op);
+            if (op == null) return "false";
+            return "(" + operand(c.left) + " " + op + " " + operand(c.right) + ")";
+        }
+        return "rt.evalCondition(" + k(c) + ")";
+    }
+
+    private static String javaOp(String op) {
+        return switch (op) {
+            case "=" -> "==";
+            case "<>" -> "!=";
+            case ">", "<", ">=", "<=" -> op;
+            default -> null;
+        };
+    }
+
+    private String operand(Stmt.Operand o) {
+        return o.ref == null ? o.literal + "L" : number(o.ref);
+    }
+
+    private String expr(Expr e) {
+        if (e instanceof Expr.Const c) return "(" + c.value + "L)";
+        if (e instanceof Expr.Field f)
+            return f.ref.isNumeric() ? number(f.ref) : "rt.operandValue(" + k(f.ref) + ")";
+        if (e instanceof Expr.Add a) return "(" + expr(a.left) + " + " + expr(a.right) + ")";
+        if (e instanceof Expr.Subtract a) return "(" + expr(a.left) + " - " + expr(a.right) + ")";
+        if (e instanceof Expr.Multiply a) return "(" + expr(a.left) + " * " + expr(a.right) + ")";
+        if (e instanceof Expr.Divide a) return "(" + expr(a.left) + " / " + expr(a.right) + ")";
+        if (e instanceof Expr.Negate a) return "(-" + expr(a.operand) + ")";
+        return k(e) + ".eval(rt)";
+    }
+
+    private static boolean hasDivide(Expr e) {
+        if (e instanceof Expr.Divide) return true;
+        if (e instanceof Expr.Add a) return hasDivide(a.left) || hasDivide(a.right);
+        if (e instanceof Expr.Subtract a) return hasDivide(a.left) || hasDivide(a.right);
+        if (e instanceof Expr.Multiply a) return hasDivide(a.left) || hasDivide(a.right);
+        if (e instanceof Expr.Negate a) return hasDivide(a.operand);
+        return !(e instanceof Expr.Const || e instanceof Expr.Field);
+    }
+
+    /** 数值字段：没有下标时按格式直接读记录，否则经由运行时 */
+    private String number(Stmt.Ref ref) {
+        CobolInterpreter.VarSpec vs = ref.spec;
+        if (vs == null || !vs.isNumeric) return "rt.numericValue(" + k(ref) + ")";
+        if (ref.index != null) return "rt.num(" + k(ref) + ")";
+        return switch (vs.usage) {
+            case CobolInterpreter.VarSpec.PACKED -> "Packed.decode(s, " + ref.base + ", " + vs.length + ")";
+            case CobolInterpreter.VarSpec.BINARY, CobolInterpreter.VarSpec.NATIVE ->
+                    "(s.getBinary(" + ref.base + ", " + vs.length + ", " + (vs.usage == CobolInterpreter.VarSpec.BINARY)
+                            + ") & " + vs.mask + "L)";
+            default -> "s.getZoned(" + ref.base + ", " + vs.length + ")";
+        };
+    }
+
+    private String store(Stmt.Ref ref, String value) {
+        if (zoned(ref))
+            return "s.putZoned(" + ref.base + ", " + ref.spec.length + ", " + ref.spec.signed + ", " + value + ")";
+        return "rt.storeNumber(" + k(ref) + ", " + value + ")";
+    }
+
+    private static boolean zoned(Stmt.Ref ref) {
+        return ref.spec != null && ref.spec.isNumeric && ref.spec.usage == CobolInterpreter.VarSpec.DISPLAY && ref.index == null;
+    }
+
+    private String offset(Stmt.Ref ref) {
+        return ref.index == null ? Integer.toString(ref.base) : k(ref) + ".offset(rt)";
+    }
+
+    private void line(String indent, String code) {
+        out.append(indent).append(code).append('\n');
+    }
+
+    // === javac ===
+    /** 编译不通过时 Unavailable 带上 javac 的诊断 */
+    private static byte[] javac(JavaCompiler javac, String source) throws Unavailable {
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + CLASS_NAME + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override public CharSequence getCharContent(boolean ignoreEncodingErrors) { return source; }
+        };
+        Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager standard = javac.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        try (JavaFileManager files = new ForwardingJavaFileManager<>(standard) {
+            @Override public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind,
+                                                                 FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + name + kind.extension), kind) {
+                    @Override public OutputStream openOutputStream() {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        classes.put(name, bytes);
+                        return bytes;
+                    }
+                };
+            }
+        }) {
+            List<String> options = List.of("-classpath", classPath(), "-proc:none", "-g:none", "-nowarn");
+            Boolean ok = javac.getTask(null, files, diagnostics, options, null, List.of(file)).call();
+            if (!Boolean.TRUE.equals(ok)) {
+                StringBuilder message = new StringBuilder("generated source does not compile");
+                for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+                    message.append("\n  line ").append(d.getLineNumber()).append(": ").append(d.getMessage(null));
+                }
+                throw new Unavailable(message.toString());
+            }
+        } catch (IOException e) {
+            throw new Unavailable("javac file manager failed", e);
+        }
+        ByteArrayOutputStream bytes = classes.get(CLASS_NAME);
+        if (bytes == null) throw new Unavailable("javac produced no " + CLASS_NAME + " class");
+        return bytes.toByteArray();
+    }
+
+    /** 解释器自身所在的目录或 jar，加上当前 classpath */
+    private static String classPath() throws Unavailable {
+        String self;
+        try {
+            self = Path.of(BytecodeTier.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new Unavailable("cannot locate interpreter classes", e);
+        }
+        String cp = System.getProperty("java.class.path", "");
+        return cp.isEmpty() ? self : self + File.pathSeparator + cp;
+    }
+}
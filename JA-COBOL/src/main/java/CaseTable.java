@@ -0,0 +1,124 @@
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * EVALUATE 第一个主语的常量查找表
+ * 键是 WHEN 中的整数或文本常量，值是按顺序需要检查的候选分支：该常量所在的分支，
+ * 以及其间对象不是常量的分支（ANY、THRU 范围、变量等）。
+ * 整数键分布密集时按差值直接下标（跳转表），否则用开放寻址的 long 表；文本键用 HashMap
+ */
+final class CaseTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final int[][] lists;
+    private final int[] fallback;   // 不是任何常量键时的候选：只有对象不是常量的分支
+    private final long min;
+    private final int[] dense;      // 密集整数键：dense[v - min] 是 lists 的下标，-1 表示没有
+    private final long[] keys;      // 稀疏整数键，slots[i] 是 lists 的下标，-1 为空位
+    private final int[] slots;
+    private final Map<String, Integer> texts;
+
+    private CaseTable(int[][] lists, int[] fallback, long min, int[] dense, long[] keys, int[] slots,
+                      Map<String, Integer> texts) {
+        this.lists = lists;
+        this.fallback = fallback;
+        this.min = min;
+        this.dense = dense;
+        this.keys = keys;
+        this.slots = slots;
+        this.texts = texts;
+    }
+
+    /** armKeys[i] 是第 i 个分支的常量（Long 或 String），不是常量时为 null；没有常量时返回 null */
+    static CaseTable build(Object[] armKeys) {
+        Set<Object> distinct = new LinkedHashSet<>();
+        List<Integer> wild = new ArrayList<>();
+        for (int i = 0; i < armKeys.length; i++) {
+            if (armKeys[i] != null) distinct.add(armKeys[i]);
+            else wild.add(i);
+        }
+        if (distinct.isEmpty()) return null;
+        int[][] lists = new int[distinct.size()][];
+        int n = 0;
+        for (Object key : distinct) {
+            List<Integer> list = new ArrayList<>();
+            for (int i = 0; i < armKeys.length; i++) {
+                if (armKeys[i] == null || armKeys[i].equals(key)) list.add(i);
+            }
+            lists[n++] = toArray(list);
+        }
+        int[] fallback = toArray(wild);
+
+        if (distinct.iterator().next() instanceof String) {
+            Map<String, Integer> texts = new HashMap<>();
+            n = 0;
+            for (Object key : distinct) texts.put((String) key, n++);
+            return new CaseTable(lists, fallback, 0, null, null, null, texts);
+        }
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (Object key : distinct) {
+            min = Math.min(min, (Long) key);
+            max = Math.max(max, (Long) key);
+        }
+        long span = max - min;
+        if (span >= 0 && span < 4L * distinct.size() + 16) {
+            int[] dense = new int[(int) span + 1];
+            Arrays.fill(dense, -1);
+            n = 0;
+            for (Object key : distinct) dense[(int) ((Long) key - min)] = n++;
+            return new CaseTable(lists, fallback, min, dense, null, null, null);
+        }
+        int capacity = Integer.highestOneBit(distinct.size() * 2 - 1) << 1;
+        long[] keys = new long[capacity];
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        n = 0;
+        for (Object key : distinct) {
+            long v = (Long) key;
+            int i = hash(v) & (capacity - 1);
+            while (slots[i] >= 0) i = (i + 1) & (capacity - 1);
+            keys[i] = v;
+            slots[i] = n++;
+        }
+        return new CaseTable(lists, fallback, 0, null, keys, slots, null);
+    }
+
+    int[] get(long v) {
+        if (dense != null) {
+            long d = v - min;
+            if (d >= 0 && d < dense.length && dense[(int) d] >= 0) return lists[dense[(int) d]];
+            return fallback;
+        }
+        if (keys != null) {
+            int mask = keys.length - 1;
+            for (int i = hash(v) & mask; slots[i] >= 0; i = (i + 1) & mask) {
+                if (keys[i] == v) return lists[slots[i]];
+            }
+        }
+        return fallback;
+    }
+
+    int[] get(String s) {
+        Integer k = texts != null ? texts.get(s) : null;
+        return k != null ? lists[k] : fallback;
+    }
+
+    /** 当前值不可用时（数值主语求值出错）的候选 */
+    int[] fallback() { return fallback; }
+
+    private static int hash(long v) {
+        long h = v * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] a = new int[list.size()];
+        for (int i = 0; i < a.length; i++) a[i] = list.get(i);
+        return a;
+    }
+}
@@ -0,0 +1,80 @@
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 批量运行：同一个程序对很多独立的输入各运行一次
+ * 程序只编译一次，每个输入一个 CobolRun，各自有 ACCEPT 的输入与 DISPLAY 的输出；
+ * 同时运行的个数不超过 concurrency，结果按输入的顺序返回。
+ * 运行在 JDK 21 及以上时每个输入一个虚拟线程，更早的 JDK 没有虚拟线程，改用 concurrency 个平台线程
+ */
+public final class CobolBatch {
+    private final CobolProgram program;
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+    private boolean offHeap;
+    private boolean bytecode;
+
+    public CobolBatch(CobolProgram program) { this.program = program; }
+
+    /** 同时运行的输入个数上限，默认为 CPU 数 */
+    public void setConcurrency(int concurrency) { this.concurrency = Math.max(1, concurrency); }
+
+    public void setOffHeap(boolean offHeap) { this.offHeap = offHeap; }
+
+    public void setBytecode(boolean bytecode) { this.bytecode = bytecode; }
+
+    /** inputs 的每一项是一次运行中 ACCEPT 依次读到的各行；返回各次运行的输出，与 inputs 顺序相同 */
+    public List<List<String>> run(List<List<String>> inputs) throws InterruptedException {
+        return run(inputs, executor(concurrency));
+    }
+
+    /** 在给定的 executor 上运行（用完关闭）；同时运行的个数由 concurrency 限制，与 executor 的线程数无关 */
+    List<List<String>> run(List<List<String>> inputs, ExecutorService executor) throws InterruptedException {
+        Semaphore permits = new Semaphore(concurrency);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>(inputs.size());
+            for (List<String> input : inputs) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return new CobolRun(program, offHeap, input.iterator()).run(bytecode);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            List<List<String>> results = new ArrayList<>(inputs.size());
+            for (Future<List<String>> f : futures) results.add(get(f));
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<String> get(Future<List<String>> f) throws InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            // CobolRun 已把 COBOL 运行时错误变成 ERROR 输出行，到这里的是解释器自身的错误
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /** 有 Executors.newVirtualThreadPerTaskExecutor（JDK 21+）时用虚拟线程，否则用固定大小的线程池 */
+    private static ExecutorService executor(int concurrency) {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(concurrency);
+        }
+    }
+}
@@ -0,0 +1,1299 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * COBOL 编译器
+ * 把每一条语句一次性转换为 Stmt 节点，IF/EVALUATE 在编译时组装成块树，
+ * 变量名解析为槽位下标，解释器只执行节点
+ */
+class CobolCompiler {
+    // 段落按源码顺序排列；procedure 是第一个段落之前的语句
+    final Map<String, Stmt[]> paragraphs = new LinkedHashMap<>();
+    Stmt[] procedure;
+    Code code;              // 展开后的指令序列
+
+    // 符号表：变量名 -> 槽位；specs/names 按槽位排列，未声明的变量 spec 为 null
+    final Map<String, Integer> slots = new HashMap<>();
+    final List<CobolInterpreter.VarSpec> specs = new ArrayList<>();
+    final List<String> names = new ArrayList<>();
+
+    // WORKING-STORAGE 记录长度与初始化操作；记录之后是常量区（COMP-3 运算用到的字面量）
+    int recordLength;
+    Storage.Init[] init = new Storage.Init[0];
+    private final List<Storage.Init> constantInit = new ArrayList<>();
+    private final Map<Long, Stmt.Ref> packedConstants = new HashMap<>();
+
+    // 自特化节点（Move / Arith / Condition）的编号，特化状态按编号放在每次运行的 CobolRun 中
+    private int sites;
+
+    // PERFORM 的次数、初值与步长中读到的未声明变量（槽位 -> 操作数原文）与过程部中写过的槽位，编译完成后核对
+    private final Map<Integer, String> performReads = new LinkedHashMap<>();
+    private final Set<Integer> written = new HashSet<>();
+    // 各槽位被引用的次数与其中作为接收字段（MOVE / COMPUTE / 算术的目标）的次数，编译完成后核对
+    private final Map<Integer, Integer> uses = new HashMap<>();
+    private final Map<Integer, Integer> receiverUses = new LinkedHashMap<>();
+
+    // COPY 查找成员的库（为 null 时没有库）与展开时用到的成员（编译缓存的依赖）
+    CopybookLibrary copybooks;
+    final List<CopybookLibrary.Member> copied = new ArrayList<>();
+
+    void compile(List<String> lines) {
+        compile(lines, false);
+    }
+
+    /** fixedFormat：源码为固定格式（序号区、指示符、续行，见 Lexer） */
+    void compile(List<String> lines, boolean fixedFormat) {
+        compile(String.join("\n", lines), fixedFormat);
+    }
+
+    /** 整个源码（字符串或内存映射的文件，见 MappedSource） */
+    void compile(CharSequence source, boolean fixedFormat) {
+        compile(Lexer.lex(source, fixedFormat));
+    }
+
+    /** 数据部与过程部在同一遍记号扫描中处理 */
+    void compile(Lexer t) {
+        if (CopybookLibrary.hasDirectives(t)) {
+            CopybookLibrary library = copybooks != null ? copybooks : new CopybookLibrary(List.of());
+            t = library.expand(t, t.fixed(), copied);
+        }
+        int procedureStart = parseDataDivision(t);
+        compileProcedure(t, procedureStart);
+        checkPerformOperands();
+        checkReceivers();
+        markRegisters();
+        if (!constantInit.isEmpty()) {
+            List<Storage.Init> all = new ArrayList<>(List.of(init));
+            all.addAll(constantInit);
+            init = all.toArray(new Storage.Init[0]);
+        }
+        code = Code.link(procedure, paragraphs);
+    }
+
+    /** 编译结果 */
+    CobolProgram program() {
+        return new CobolProgram(procedure, paragraphs, code, names.toArray(new String[0]),
+                specs.toArray(new CobolInterpreter.VarSpec[0]), recordLength, init, sites);
+    }
+
+    /** 整数字面量的 COMP-3 形式，放在常量区中，相同的值只放一份 */
+    private Stmt.Ref packedConstant(long value) {
+        Stmt.Ref ref = packedConstants.get(value);
+        if (ref != null) return ref;
+        int digits = Math.max(1, Long.toString(Math.abs(value)).length());
+        int length = Packed.length(digits);
+        int[] none = new int[0];
+        CobolInterpreter.VarSpec spec = new CobolInterpreter.VarSpec(true, true, CobolInterpreter.VarSpec.PACKED,
+                digits, recordLength, length, none, none);
+        constantInit.add(new Storage.Init(recordLength, DataLayout.numberImage(spec, value), length, (byte) 0, none, none));
+        recordLength += length;
+        ref = new Stmt.Ref(-1, spec, spec.offset, null);
+        packedConstants.put(value, ref);
+        return ref;
+    }
+
+    /** 变量名对应的槽位，未声明的变量在第一次出现时分配 */
+    int slot(String name) {
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            uses.merge(slot, 1, Integer::sum);
+            return slot;
+        }
+        uses.put(specs.size(), 1);
+        slots.put(name, specs.size());
+        specs.add(null);
+        names.add(name);
+        return specs.size() - 1;
+    }
+
+    /** 变量引用 NAME 或 NAME(i) / NAME(i,j)：下标为整数、变量名或不含空格的表达式（I+1） */
+    Stmt.Ref ref(String token) {
+        String t = token.toUpperCase();
+        int open = t.indexOf('(');
+        boolean subscripted = open > 0 && t.endsWith(")");
+        int slot = slot(subscripted ? t.substring(0, open) : t);
+        CobolInterpreter.VarSpec spec = specs.get(slot);
+        if (spec == null) return new Stmt.Ref(slot, null, 0, null);
+        if (!subscripted || spec.counts.length == 0) return new Stmt.Ref(slot, spec, spec.offset, null);
+
+        String[] subs = t.substring(open + 1, t.length() - 1).trim().split("[\\s,]+");
+        Expr[] index = new Expr[Math.min(subs.length, spec.counts.length)];
+        for (int k = 0; k < index.length; k++) {
+            index[k] = compileExpression(subs[k]);
+            if (index[k] == null) index[k] = new Expr.Const(0);
+        }
+        return subscripted(slot, spec, index, t.substring(0, open));
+    }
+
+    /** 常量下标在这里折算成偏移量并检查范围，只有变量下标留到执行时计算 */
+    private Stmt.Ref subscripted(int slot, CobolInterpreter.VarSpec spec, Expr[] subs, String name) {
+        int base = spec.offset;
+        Expr[] index = null;
+        for (int k = 0; k < subs.length; k++) {
+            Long c = subs[k].constant();
+            if (c == null) {
+                if (index == null) index = new Expr[spec.counts.length];
+                index[k] = subs[k];
+            } else if (c < 1 || c > spec.counts[k]) {
+                throw new CobolInterpreter.CobolError("SUBSCRIPT OUT OF RANGE: " + name + "(" + c + ")");
+            } else {
+                base += (int) (c - 1) * spec.strides[k];
+            }
+        }
+        return new Stmt.Ref(slot, spec, base, index);
+    }
+
+    // === 表达式 ===
+    /** 把表达式文本编译成 Expr 树；有超出 long 范围的数字时返回 null（表达式不产生值） */
+    Expr compileExpression(String text) {
+        try { return new ExprParser(text.toUpperCase()).parseExpression(); }
+        catch (NumberFormatException e) { return null; }
+    }
+
+    /** 整个文本是一个表达式：有超出 long 范围的数字或表达式之后还有多余的字符时返回 null */
+    private Expr compileOperand(String text) {
+        ExprParser parser = new ExprParser(text.toUpperCase());
+        try {
+            Expr e = parser.parseExpression();
+            return parser.rest().isEmpty() ? e : null;
+        } catch (NumberFormatException e) { return null; }
+    }
+
+    /** + - * / 与括号，运算符优先级与结合性同 COBOL；遇到无法识别的字符即结束 */
+    private final class ExprParser {
+        private final String s;
+        private int idx = 0;
+        ExprParser(String s) { this.s = s; }
+        Expr parseExpression() {
+            Expr v = parseTerm();
+            while (true) {
+                skipWhitespace();
+                if (peek() == '+') { idx++; v = Expr.add(v, parseTerm()); }
+                else if (peek() == '-') { idx++; v = Expr.subtract(v, parseTerm()); }
+                else break;
+            }
+            return v;
+        }
+        Expr parseTerm() {
+            Expr v = parseFactor();
+            while (true) {
+                skipWhitespace();
+                if (peek() == '*') { idx++; v = Expr.multiply(v, parseFactor()); }
+                else if (peek() == '/') { idx++; v = Expr.divide(v, parseFactor()); }
+                else break;
+            }
+            return v;
+        }
+        Expr parseFactor() {
+            skipWhitespace();
+            char c = peek();
+            if (c == '(') { idx++; Expr v = parseExpression(); skipWhitespace(); if (peek() == ')') idx++; return v; }
+            if (c == '+' || c == '-') {
+                int start = idx++;
+                if (!Character.isDigit(peek())) {
+                    Expr operand = parseFactor();
+                    return c == '-' ? Expr.negate(operand) : operand;
+                }
+                return number(start);
+            }
+            if (Character.isDigit(c)) return number(idx);
+            int start = idx;
+            while (Character.isLetterOrDigit(peek()) || peek() == '-') idx++;
+            String name = s.substring(start, idx);
+            if (name.isEmpty()) return new Expr.Const(0);
+            int slot = slot(name);
+            CobolInterpreter.VarSpec spec = specs.get(slot);
+            if (spec == null || spec.counts.length == 0 || peek() != '(') return new Expr.Field(ref(name));
+            // NAME(i, j ...)：下标本身也是表达式
+            idx++;
+            Expr[] subs = new Expr[spec.counts.length];
+            for (int k = 0; k < subs.length; k++) {
+                subs[k] = parseExpression();
+                skipWhitespace();
+                if (peek() == ',') idx++;
+            }
+            skipWhitespace();
+            if (peek() == ')') idx++;
+            return new Expr.Field(subscripted(slot, spec, subs, name));
+        }
+        /** 从 start（可带符号）开始的整数常量；后面接小数部分时报错 */
+        Expr number(int start) {
+            while (Character.isDigit(peek())) idx++;
+            if (peek() == '.' && idx + 1 < s.length() && Character.isDigit(s.charAt(idx + 1))) {
+                int end = idx + 1;
+                while (end < s.length() && Character.isDigit(s.charAt(end))) end++;
+                throw new CobolInterpreter.CobolError("UNSUPPORTED DECIMAL LITERAL: " + s.substring(start, end));
+            }
+            return new Expr.Const(Long.parseLong(s.substring(start, idx)));
+        }
+        char peek() { return idx >= s.length() ? '\0' : s.charAt(idx); }
+        /** 表达式之后没有解析的文本 */
+        String rest() {
+            skipWhitespace();
+            return s.substring(idx);
+        }
+        void skipWhitespace() { while (Character.isWhitespace(peek())) idx++; }
+    }
+
+    // === DATA DIVISION ===
+    /**
+     * WORKING-STORAGE 数据描述项 -> 记录布局、槽位与 VarSpec；
+     * 返回 PROCEDURE DIVISION 之后第一个记号的下标，没有过程部时为记号总数
+     */
+    private int parseDataDivision(Lexer t) {
+        boolean inData = false, inWorking = false;
+        DataLayout layout = new DataLayout();
+        List<String> entry = new ArrayList<>();
+        int n = t.count(), i = 0, procedure = n;
+
+        while (i < n) {
+            int k = t.keyword(i);
+            if (k == CobolKeywords.PROCEDURE && i + 1 < n && t.keyword(i + 1) == CobolKeywords.DIVISION) {
+                // PROCEDURE DIVISION [USING ...]. 的其余部分不编译
+                procedure = i + 2;
+                if (procedure < n && t.keyword(procedure) == CobolKeywords.USING) {
+                    while (procedure < n && t.kind(procedure) != Lexer.PERIOD) procedure++;
+                }
+                procedure = skipPeriod(t, procedure);
+                break;
+            }
+            if (k == CobolKeywords.DATA && i + 1 < n && t.keyword(i + 1) == CobolKeywords.DIVISION) {
+                inData = true;
+                i = skipPeriod(t, i + 2);
+                continue;
+            }
+            if (inData && i + 1 < n && t.keyword(i + 1) == CobolKeywords.SECTION && entry.isEmpty()) {
+                inWorking = k == CobolKeywords.WORKING_STORAGE;
+                i = skipPeriod(t, i + 2);
+                continue;
+            }
+            if (!inData || !inWorking) { i++; continue; }
+
+            // 一个数据描述项可以跨行，以句点结束
+            if (t.kind(i) == Lexer.PERIOD) {
+                if (!entry.isEmpty()) layout.entry(entry);
+                entry = new ArrayList<>();
+            } else {
+                entry.add(t.text(i));
+            }
+            i++;
+        }
+        if (!entry.isEmpty()) layout.entry(entry);
+
+        recordLength = layout.finish();
+        init = layout.initOps();
+        for (DataLayout.Item item : layout.items) {
+            if (item.name != null) specs.set(slot(item.name), item.toSpec());
+        }
+        return procedure;
+    }
+
+    /** 跳过紧跟的句点 */
+    private static int skipPeriod(Lexer t, int i) {
+        return i < t.count() && t.kind(i) == Lexer.PERIOD ? i + 1 : i;
+    }
+
+    // === PROCEDURE DIVISION ===
+    // 语句的开头：动词与作用域结束符。一条语句到下一个开头或句点为止，与换行无关
+    private static final boolean[] STATEMENT_START = new boolean[CobolKeywords.RESERVED_WORDS.size()];
+    static {
+        for (String verb : List.of("ACCEPT", "ADD", "CALL", "COMPUTE", "CONTINUE", "DISPLAY", "DIVIDE", "ELSE",
+                "EVALUATE", "EXIT", "GO", "GOBACK", "IF", "INITIALIZE", "INSPECT", "MOVE", "MULTIPLY", "PERFORM",
+                "SET", "STOP", "STRING", "SUBTRACT", "UNSTRING", "WHEN", "END-ADD", "END-CALL", "END-COMPUTE",
+                "END-DIVIDE", "END-EVALUATE", "END-IF", "END-MULTIPLY", "END-PERFORM", "END-STRING",
+                "END-SUBTRACT", "END-UNSTRING")) {
+            STATEMENT_START[CobolKeywords.id(verb)] = true;
+        }
+    }
+
+    private static boolean isStatementStart(Lexer t, int i) {
+        int k = t.keyword(i);
+        return k >= 0 ? STATEMENT_START[k] : t.is(i, "GOTO");
+    }
+
+    /**
+     * 从记号 from 开始把过程部切分成语句并编译，一次完成：一行可以有多条语句，一条语句也可以跨行。
+     * 句点结束句子，句子中没有 END-IF / END-EVALUATE 的 IF / EVALUATE 到句点为止
+     */
+    private void compileProcedure(Lexer t, int from) {
+        String currentParagraph = null;
+        List<Stmt> buffer = new ArrayList<>();
+        int n = t.count();
+        boolean sentenceStart = true, openBlock = false;
+        for (int i = from, end; i < n; i = end) {
+            if (t.kind(i) == Lexer.PERIOD) {
+                // 只有句子中有 IF / EVALUATE / 内联 PERFORM 时句点才需要标记
+                if (openBlock) buffer.add(PERIOD);
+                sentenceStart = true;
+                openBlock = false;
+                end = i + 1;
+                continue;
+            }
+            String label = sentenceStart ? paragraphName(t, i) : null;
+            if (label != null) {
+                if (currentParagraph != null) paragraphs.put(currentParagraph, structure(buffer));
+                else procedure = structure(buffer);
+                buffer.clear();
+                currentParagraph = label;
+                end = i + 2;
+                continue;
+            }
+            sentenceStart = false;
+            end = i + 1;
+            while (end < n && t.kind(end) != Lexer.PERIOD && !isStatementStart(t, end)) end++;
+            int first = buffer.size();
+            compileStatement(t, i, end, buffer);
+            for (int k = first; k < buffer.size(); k++) {
+                Stmt stmt = buffer.get(k);
+                if (stmt.target() != null) {
+                    written.add(stmt.target().slot);
+                    // ACCEPT 即使目标没有被读过也消耗一行输入，不算
+                    if (!(stmt instanceof Stmt.Accept)) receiverUses.merge(stmt.target().slot, 1, Integer::sum);
+                }
+                openBlock |= stmt instanceof IfMark || stmt instanceof EvaluateMark || stmt instanceof PerformMark;
+            }
+        }
+        if (currentParagraph != null) paragraphs.put(currentParagraph, structure(buffer));
+        else procedure = structure(buffer);
+        if (procedure == null) procedure = new Stmt[0];
+    }
+
+    // === 块结构 ===
+    // 逐条编译得到的是扁平序列，IF/EVALUATE 的头尾与句点以标记节点表示；
+    // structure() 按嵌套关系把它们匹配成 Stmt.If / Stmt.Evaluate 块树。
+    private static final class IfMark extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final Predicate condition;
+        IfMark(Predicate condition) { this.condition = condition; }
+        @Override void exec(CobolRun rt) {}
+    }
+
+    /** EVALUATE / WHEN 的记号（见 conditionTokens）在整个 EVALUATE 收齐后才编译：主语的类型取决于各 WHEN 的对象 */
+    private static final class EvaluateMark extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final List<String> tokens;
+        EvaluateMark(List<String> tokens) { this.tokens = tokens; }
+        @Override void exec(CobolRun rt) {}
+    }
+
+    private static final class WhenMark extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final boolean other;
+        final List<String> tokens;
+        WhenMark(boolean other, List<String> tokens) {
+            this.other = other;
+            this.tokens = tokens;
+        }
+        @Override void exec(CobolRun rt) {}
+    }
+
+    /** 内联 PERFORM 的头，语句体到 END-PERFORM 为止 */
+    private static final class PerformMark extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final Stmt.Perform perform;
+        PerformMark(Stmt.Perform perform) { this.perform = perform; }
+    }
+
+    /** PERIOD：句点，结束其前所有未结束的块 */
+    private static final class EndMark extends Stmt {
+        private static final long serialVersionUID = 1L;
+        static final int ELSE = 0, END_IF = 1, END_EVALUATE = 2, END_PERFORM = 3, PERIOD = 4;
+        final int kind;
+        EndMark(int kind) { this.kind = kind; }
+        @Override void exec(CobolRun rt) {}
+    }
+
+    private static final EndMark PERIOD = new EndMark(EndMark.PERIOD);
+
+    private Stmt[] structure(List<Stmt> flat) {
+        int[] pos = {0};
+        List<Stmt> out = new ArrayList<>();
+        while (pos[0] < flat.size()) {
+            // 句点与顶层多余的 ELSE / WHEN / END-xxx（没有对应的头）在这里跳过
+            block(flat, pos, out);
+            if (pos[0] < flat.size()) pos[0]++;
+        }
+        return out.toArray(new Stmt[0]);
+    }
+
+    /** 读取语句直到遇到不属于本块的标记（ELSE / WHEN / END-xxx），标记本身不消耗 */
+    private void block(List<Stmt> flat, int[] pos, List<Stmt> out) {
+        while (pos[0] < flat.size()) {
+            Stmt s = flat.get(pos[0]);
+            if (s instanceof EndMark || s instanceof WhenMark) return;
+            pos[0]++;
+            if (s instanceof IfMark head) out.add(structureIf(head, flat, pos));
+            else if (s instanceof EvaluateMark head) out.add(structureEvaluate(head, flat, pos));
+            else if (s instanceof PerformMark head) out.add(structurePerform(head, flat, pos));
+            else out.add(s);
+        }
+    }
+
+    private Stmt structureIf(IfMark head, List<Stmt> flat, int[] pos) {
+        List<Stmt> thenBlock = new ArrayList<>(), elseBlock = new ArrayList<>();
+        block(flat, pos, thenBlock);
+        if (isEnd(flat, pos, EndMark.ELSE)) {
+            pos[0]++;
+            block(flat, pos, elseBlock);
+        }
+        if (isEnd(flat, pos, EndMark.END_IF)) pos[0]++;
+        return new Stmt.If(head.condition, thenBlock.toArray(new Stmt[0]), elseBlock.toArray(new Stmt[0]));
+    }
+
+    private Stmt structureEvaluate(EvaluateMark head, List<Stmt> flat, int[] pos) {
+        List<WhenMark> whens = new ArrayList<>(), pending = new ArrayList<>();
+        List<Stmt[]> bodies = new ArrayList<>();
+        block(flat, pos, new ArrayList<>());  // 第一个 WHEN 之前的语句不会被执行
+        while (pos[0] < flat.size() && flat.get(pos[0]) instanceof WhenMark w) {
+            pos[0]++;
+            List<Stmt> body = new ArrayList<>();
+            block(flat, pos, body);
+            pending.add(w);
+            // 没有语句的 WHEN 与下一个 WHEN 共用语句
+            if (body.isEmpty() && pos[0] < flat.size() && flat.get(pos[0]) instanceof WhenMark) continue;
+            Stmt[] shared = body.toArray(new Stmt[0]);
+            for (WhenMark m : pending) {
+                whens.add(m);
+                bodies.add(shared);
+            }
+            pending.clear();
+        }
+        if (isEnd(flat, pos, EndMark.END_EVALUATE)) pos[0]++;
+        return compileEvaluate(head.tokens, whens, bodies);
+    }
+
+    private Stmt structurePerform(PerformMark head, List<Stmt> flat, int[] pos) {
+        List<Stmt> body = new ArrayList<>();
+        block(flat, pos, body);
+        if (isEnd(flat, pos, EndMark.END_PERFORM)) pos[0]++;
+        return head.perform.withBody(body.toArray(new Stmt[0]));
+    }
+
+    private static boolean isEnd(List<Stmt> flat, int[] pos, int kind) {
+        return pos[0] < flat.size() && flat.get(pos[0]) instanceof EndMark e && e.kind == kind;
+    }
+
+    /** 句子开头的 "NAME." 是段落头，返回大写的段落名（同 PERFORM / GO TO 的目标），否则返回 null；保留字（END-IF. 等）不是段落名 */
+    private static String paragraphName(Lexer t, int from) {
+        if (from + 1 >= t.count() || t.kind(from) != Lexer.WORD || t.keyword(from) >= 0 || t.kind(from + 1) != Lexer.PERIOD)
+            return null;
+        String token = t.text(from).toUpperCase();
+        return token.matches("[A-Z0-9-]+") ? token : null;
+    }
+
+    /**
+     * 编译一条语句（记号 from..to-1，结束句子的句点记号不在其中），结果加入 out：
+     * 有多个接收字段的 MOVE / COMPUTE / 算术语句每个字段编译成一条。
+     * 数值只有整数（没有小数位），带小数点的字面量编译时报错，不会按 0 或变量名处理
+     */
+    private void compileStatement(Lexer t, int from, int to, List<Stmt> out) {
+        for (int k = from; k < to; k++)
+            if (t.kind(k) == Lexer.NUMBER && t.text(k).indexOf('.') >= 0)
+                throw new CobolInterpreter.CobolError("UNSUPPORTED DECIMAL LITERAL: " + t.text(k));
+        int verb = t.keyword(from);
+        if (verb == CobolKeywords.MOVE) compileMove(t, from, to, out);
+        else if (verb == CobolKeywords.COMPUTE) compileCompute(t, from, to, out);
+        else if (verb == CobolKeywords.ADD) compileArith(Stmt.Arith.ADD, t, from, to, out);
+        else if (verb == CobolKeywords.SUBTRACT) compileArith(Stmt.Arith.SUBTRACT, t, from, to, out);
+        else if (verb == CobolKeywords.MULTIPLY) compileArith(Stmt.Arith.MULTIPLY, t, from, to, out);
+        else if (verb == CobolKeywords.DIVIDE) compileArith(Stmt.Arith.DIVIDE, t, from, to, out);
+        else {
+            Stmt stmt = compileStatement(t, from, to);
+            if (stmt != null) out.add(stmt);
+        }
+    }
+
+    /**
+     * 其它语句按第一个记号的关键字编号分派，各子句按记号下标与关键字编号切分；
+     * 节头（NAME SECTION）与作用域结束符（END-ADD 等）返回 null。
+     * 认得但没有实现的动词（CALL、SET 等）、不是动词开头的语句与操作数之后多余的记号都在编译时报错，不会悄悄跳过
+     */
+    private Stmt compileStatement(Lexer t, int from, int to) {
+        int verb = t.keyword(from);
+        if (verb < 0 && !t.is(from, "GOTO")) {
+            if (from + 2 == to && t.keyword(from + 1) == CobolKeywords.SECTION) return null;
+            throw unexpected(t, from, from, to);
+        }
+        if (verb == CobolKeywords.GO || verb < 0) return compileGoto(t, from, to);
+        if (verb == CobolKeywords.EVALUATE) return new EvaluateMark(conditionTokens(t, from + 1, to));
+        if (verb == CobolKeywords.DISPLAY) return compileDisplay(t, from, to);
+        if (verb == CobolKeywords.ACCEPT) return compileAccept(t, from, to);
+        if (verb == CobolKeywords.IF) return new IfMark(statementCondition(t, from, from + 1, to));
+        if (verb == CobolKeywords.PERFORM) return compilePerform(t, from, to);
+        if (verb == CobolKeywords.STOP && from + 2 == to && t.keyword(from + 1) == CobolKeywords.RUN) return new Stmt.StopRun();
+        // 主程序中的 GOBACK 与 STOP RUN 相同；只有单独的 EXIT 是空语句，EXIT PROGRAM / PERFORM 等没有实现
+        if (verb == CobolKeywords.GOBACK && from + 1 == to) return new Stmt.StopRun();
+        // PERFORM 是语句开头，EXIT PERFORM 在切分时被分成了两条
+        if (verb == CobolKeywords.EXIT && from + 1 == to && to < t.count() && t.keyword(to) == CobolKeywords.PERFORM)
+            throw new CobolInterpreter.CobolError("UNSUPPORTED STATEMENT: EXIT PERFORM");
+        if (verb == CobolKeywords.WHEN) return compileWhen(t, from, to);
+        if (UNSUPPORTED.contains(verb) && (verb != CobolKeywords.EXIT || from + 1 < to)) {
+            // EXIT / STOP / GOBACK 带上后面的词（EXIT PROGRAM），其它只报动词
+            boolean qualified = verb == CobolKeywords.EXIT || verb == CobolKeywords.STOP || verb == CobolKeywords.GOBACK;
+            throw new CobolInterpreter.CobolError("UNSUPPORTED STATEMENT: " + t.text(from, qualified ? to : from + 1).toUpperCase());
+        }
+        // 以下都是单独一个词
+        if (from + 1 < to) throw unexpected(t, from, from + 1, to);
+        if (verb == CobolKeywords.CONTINUE || verb == CobolKeywords.EXIT) return new Stmt.Continue();
+        if (verb == CobolKeywords.ELSE) return new EndMark(EndMark.ELSE);
+        if (verb == CobolKeywords.END_IF) return new EndMark(EndMark.END_IF);
+        if (verb == CobolKeywords.END_EVALUATE) return new EndMark(EndMark.END_EVALUATE);
+        if (verb == CobolKeywords.END_PERFORM) return new EndMark(EndMark.END_PERFORM);
+        if (STATEMENT_START[verb]) return null;     // END-ADD 等没有对应块的作用域结束符
+        throw unexpected(t, from, from, to);
+    }
+
+    /**
+     * 语句中没有解析的记号：at == from 时整条语句不是动词开头，at == to 时是缺少操作数，
+     * 否则 at..to-1 是操作数之后多余的记号
+     */
+    private static CobolInterpreter.CobolError unexpected(Lexer t, int from, int at, int to) {
+        if (at == from) return new CobolInterpreter.CobolError("NOT A STATEMENT: " + t.text(from, to).toUpperCase());
+        if (at >= to) return new CobolInterpreter.CobolError("INCOMPLETE STATEMENT: " + t.text(from, to).toUpperCase());
+        return unexpected(t, from, t.text(at, to));
+    }
+
+    private static CobolInterpreter.CobolError unexpected(Lexer t, int from, String rest) {
+        return new CobolInterpreter.CobolError("UNEXPECTED TOKENS IN " + t.text(from).toUpperCase() + ": " + rest.toUpperCase());
+    }
+
+    // 作为语句开头认得、但没有实现的动词
+    private static final Set<Integer> UNSUPPORTED = Set.of(CobolKeywords.CALL, CobolKeywords.EXIT, CobolKeywords.GOBACK,
+            CobolKeywords.INITIALIZE, CobolKeywords.INSPECT, CobolKeywords.SET, CobolKeywords.STOP, CobolKeywords.STRING,
+            CobolKeywords.UNSTRING);
+
+    /** 从记号 i 开始的一个操作数的结束位置（不含）：带下标时到括号配对为止（TAB(I, J) 是两个记号） */
+    private static int operandEnd(Lexer t, int i, int to) {
+        if (i >= to) return to;
+        int depth = t.kind(i) == Lexer.STRING ? 0 : parens(t.text(i)), end = i + 1;
+        while (depth > 0 && end < to && t.kind(end) != Lexer.STRING) depth += parens(t.text(end++));
+        return end;
+    }
+
+    /** 左括号比右括号多几个 */
+    private static int parens(String s) {
+        int depth = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '(') depth++;
+            else if (s.charAt(i) == ')') depth--;
+        }
+        return depth;
+    }
+
+    /** 操作数（记号 from..to-1）绑定到变量 */
+    private Stmt.Ref ref(Lexer t, int from, int to) {
+        return ref(t.text(from, to));
+    }
+
+    private static boolean isQuoted(String s) {
+        return s.length() >= 2 && ((s.startsWith("'") && s.endsWith("'")) || (s.startsWith("\"") && s.endsWith("\"")));
+    }
+
+    private static Long intLiteral(String s) {
+        return s.matches("-?\\d{1,18}") ? Long.valueOf(s) : null;
+    }
+
+    private static boolean isName(String s) {
+        return s.matches("[A-Za-z0-9-]*[A-Za-z][A-Za-z0-9-]*");
+    }
+
+    /** 记号 i 是名字（可带下标），不是字面量或保留字 */
+    private static boolean isName(Lexer t, int i, int to) {
+        if (i >= to || t.kind(i) == Lexer.STRING || t.keyword(i) >= 0) return false;
+        String s = t.text(i);
+        int open = s.indexOf('(');
+        return isName(open > 0 ? s.substring(0, open) : s);
+    }
+
+    /** 接收字段：记号 at..end-1 是一个或多个名字（可带下标），否则报错（from..to-1 是整条语句） */
+    private List<Stmt.Ref> receivers(Lexer t, int from, int at, int end, int to) {
+        List<Stmt.Ref> refs = new ArrayList<>();
+        while (isName(t, at, end)) {
+            int next = operandEnd(t, at, end);
+            refs.add(ref(t, at, next));
+            at = next;
+        }
+        if (refs.isEmpty() || at < end) throw unexpected(t, from, at < end ? at : to, to);
+        return refs;
+    }
+
+    // === 基础运算 ===
+    /** MOVE 值 TO 目标 ...，值是一个字面量、ZERO / SPACES 等或变量；每个目标编译成一条 MOVE */
+    private void compileMove(Lexer t, int from, int to, List<Stmt> out) {
+        if (isKeyword(t, from + 1, to, CobolKeywords.TO)) throw unexpected(t, from, to, to);
+        int toAt = operandEnd(t, from + 1, to);
+        if (!isKeyword(t, toAt, to, CobolKeywords.TO)) throw unexpected(t, from, toAt, to);
+        String valuePart = t.text(from + 1, toAt);
+        boolean quoted = t.kind(from + 1) == Lexer.STRING;
+        Long number = quoted ? null : intLiteral(valuePart);
+        for (Stmt.Ref target : receivers(t, from, toAt + 1, to, to)) out.add(move(valuePart, quoted, number, target));
+    }
+
+    private Stmt move(String valuePart, boolean quoted, Long number, Stmt.Ref target) {
+        CobolInterpreter.VarSpec dst = target.spec;
+        if (quoted || number != null) {
+            // 字面量在编译时转换成目标字段的字节映像，执行时只做一次拷贝
+            if (dst != null)
+                return new Stmt.MoveBytes(target, DataLayout.literalImage(valuePart, dst));
+            return new Stmt.Move(target, quoted ? valuePart.substring(1, valuePart.length() - 1) : number, null, sites++);
+        }
+        if (dst != null) {
+            byte[] figurative = DataLayout.figurativeImage(valuePart, dst);
+            if (figurative != null) return new Stmt.MoveBytes(target, figurative);
+        }
+        Stmt.Ref source = ref(valuePart);
+        CobolInterpreter.VarSpec src = source.spec;
+        if (dst != null && src != null) {
+            if (dst.isNumeric && src.isNumeric) {
+                if (dst.usage == src.usage && dst.length == src.length && dst.signed == src.signed && dst.digits == src.digits)
+                    return new Stmt.MoveField(source, target);
+                if (dst.isPacked() && src.isPacked()) return new Stmt.MovePacked(source, target);
+                return new Stmt.MoveNumber(target, source);
+            }
+            // COMP-3 / COMP 送到字符字段时要先转换成数字字符，走通用路径
+            if (!dst.isNumeric && src.usage == CobolInterpreter.VarSpec.DISPLAY) return new Stmt.MoveField(source, target);
+        }
+        return new Stmt.Move(target, null, source, sites++);
+    }
+
+    /** COMPUTE 目标 ... = 表达式，= 是单独的记号；每个目标编译成一条 COMPUTE */
+    private void compileCompute(Lexer t, int from, int to, List<Stmt> out) {
+        int eq = from + 1;
+        while (eq < to && !(t.kind(eq) == Lexer.OTHER && t.text(eq).equals("="))) eq++;
+        if (eq + 1 >= to) throw unexpected(t, from, to, to);
+        List<Stmt.Ref> targets = receivers(t, from, from + 1, eq, to);
+        ExprParser parser = new ExprParser(t.text(eq + 1, to).toUpperCase());
+        Expr e;
+        try {
+            e = parser.parseExpression();
+            if (!parser.rest().isEmpty()) throw unexpected(t, from, parser.rest());
+        } catch (NumberFormatException x) {
+            e = null;   // 超出 long 范围：表达式不产生值，目标不变
+        }
+        for (Stmt.Ref target : targets) out.add(new Stmt.Compute(target, e));
+    }
+
+    // === EVALUATE ===
+    private static final Set<String> RELATION_WORDS = Set.of(
+            "=", "<>", ">", "<", ">=", "<=", "EQUAL", "GREATER", "LESS", "IS", "AND", "OR", "NOT");
+
+    /** 各主语按 ALSO 切分；WHEN 的对象个数少于主语时缺少的按 ANY 处理 */
+    private Stmt compileEvaluate(List<String> subject, List<WhenMark> whens, List<Stmt[]> bodies) {
+        List<List<String>> subjectTokens = splitAlso(subject);
+        List<List<List<String>>> objectTokens = new ArrayList<>();
+        for (WhenMark w : whens) objectTokens.add(w.other ? null : splitAlso(w.tokens));
+        Stmt.Subject[] subjects = new Stmt.Subject[subjectTokens.size()];
+        for (int j = 0; j < subjects.length; j++) {
+            List<List<String>> column = new ArrayList<>();
+            for (List<List<String>> row : objectTokens) {
+                if (row != null && j < row.size()) column.add(row.get(j));
+            }
+            subjects[j] = compileSubject(subjectTokens.get(j), column);
+        }
+        Stmt.WhenArm[] arms = new Stmt.WhenArm[whens.size()];
+        for (int i = 0; i < arms.length; i++) {
+            List<List<String>> row = objectTokens.get(i);
+            Stmt.Match[] objects = null;
+            if (row != null) {
+                objects = new Stmt.Match[subjects.length];
+                for (int j = 0; j < objects.length; j++)
+                    objects[j] = j < row.size() ? compileObject(subjects[j], row.get(j)) : Stmt.Match.any();
+            }
+            arms[i] = new Stmt.WhenArm(objects, bodies.get(i));
+        }
+        return new Stmt.Evaluate(subjects, arms);
+    }
+
+    /**
+     * TRUE / FALSE 与条件是条件主语；字符字段、未声明变量与引号字面量是文本主语，
+     * 但字段或变量的 WHEN 对象全是整数时按数值比较；其它按算术表达式求值
+     */
+    private Stmt.Subject compileSubject(List<String> t, List<List<String>> objects) {
+        if (t.isEmpty() || isWord(t, "TRUE")) return Stmt.Subject.condition(null, true);
+        if (isWord(t, "FALSE")) return Stmt.Subject.condition(null, false);
+        for (String token : t) {
+            String w = token.toUpperCase();
+            if (RELATION_WORDS.contains(w) || CLASS_WORDS.containsKey(w) || SIGN_WORDS.containsKey(w)) {
+                return Stmt.Subject.condition(compileCondition(t, "EVALUATE"), true);
+            }
+        }
+        if (t.size() == 1) {
+            Stmt.Operand o = operand(t.get(0));
+            if (isQuoted(t.get(0)) || o.ref != null && !o.numeric && !allNumbers(objects)) return Stmt.Subject.text(o);
+        }
+        Expr e = compileExpression(String.join(" ", t));
+        return e != null ? Stmt.Subject.number(e) : Stmt.Subject.text(new Stmt.Operand(null, String.join(" ", t), false));
+    }
+
+    private static boolean allNumbers(List<List<String>> objects) {
+        for (List<String> t : objects) {
+            for (String token : t) {
+                String w = token.toUpperCase();
+                if (!w.equals("ANY") && !w.equals("NOT") && !w.equals("THRU") && !w.equals("THROUGH")
+                        && !ZEROS.contains(w) && intLiteral(token) == null) return false;
+            }
+        }
+        return true;
+    }
+
+    /** ANY、[NOT] 值 [THRU 值]；条件主语的对象是条件或 TRUE / FALSE */
+    private Stmt.Match compileObject(Stmt.Subject s, List<String> t) {
+        if (isWord(t, "ANY")) return Stmt.Match.any();
+        if (s.kind == Stmt.Subject.CONDITION) {
+            if (isWord(t, "TRUE")) return Stmt.Match.condition(null, true);
+            if (isWord(t, "FALSE")) return Stmt.Match.condition(null, false);
+            return Stmt.Match.condition(compileCondition(t, "WHEN"), true);
+        }
+        int from = !t.isEmpty() && t.get(0).equalsIgnoreCase("NOT") ? 1 : 0, thru = from;
+        while (thru < t.size() && !t.get(thru).equalsIgnoreCase("THRU") && !t.get(thru).equalsIgnoreCase("THROUGH")) thru++;
+        List<String> low = t.subList(from, thru), high = thru < t.size() ? t.subList(thru + 1, t.size()) : null;
+        if (s.kind == Stmt.Subject.NUMBER) return Stmt.Match.number(from == 1, value(low), high != null ? value(high) : null);
+        return Stmt.Match.text(from == 1, low.isEmpty() ? null : operand(low.get(0)),
+                high != null && !high.isEmpty() ? operand(high.get(0)) : null);
+    }
+
+    /** WHEN 中的数值对象，没有记号或超出 long 时为 null */
+    private Expr value(List<String> t) {
+        if (t.isEmpty()) return null;
+        if (t.size() == 1 && ZEROS.contains(t.get(0).toUpperCase())) return new Expr.Const(0);
+        return compileExpression(String.join(" ", t));
+    }
+
+    private static boolean isWord(List<String> t, String word) {
+        return t.size() == 1 && t.get(0).equalsIgnoreCase(word);
+    }
+
+    /** 按括号外的 ALSO 切分记号 */
+    private static List<List<String>> splitAlso(List<String> tokens) {
+        List<List<String>> out = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int depth = 0;
+        for (String token : tokens) {
+            if (token.equals("(")) depth++;
+            else if (token.equals(")")) depth--;
+            if (depth == 0 && token.equalsIgnoreCase("ALSO")) {
+                out.add(current);
+                current = new ArrayList<>();
+            } else {
+                current.add(token);
+            }
+        }
+        out.add(current);
+        return out;
+    }
+
+    // 各运算的介词，按 Stmt.Arith 的运算编号排列
+    private static final int[] PREPOSITIONS = {CobolKeywords.TO, CobolKeywords.FROM, CobolKeywords.BY, CobolKeywords.INTO};
+
+    /** ADD a TO b ... / SUBTRACT a FROM b ... / MULTIPLY a BY b ... / DIVIDE a INTO b ...：每个目标编译成一条 */
+    private void compileArith(int op, Lexer t, int from, int to, List<Stmt> out) {
+        if (isKeyword(t, from + 1, to, PREPOSITIONS[op])) throw unexpected(t, from, to, to);
+        int sourceEnd = operandEnd(t, from + 1, to);
+        if (!isKeyword(t, sourceEnd, to, PREPOSITIONS[op])) throw unexpected(t, from, sourceEnd, to);
+        String operand = t.text(from + 1, sourceEnd);
+        Long literal = intLiteral(operand);
+        Stmt.Ref source = literal == null ? ref(operand) : null;
+        for (Stmt.Ref target : receivers(t, from, sourceEnd + 1, to, to)) out.add(arith(op, literal, source, target));
+    }
+
+    private Stmt arith(int op, Long literal, Stmt.Ref source, Stmt.Ref target) {
+        long value = literal == null ? 0 : literal;
+        if (target.spec != null && target.spec.isPacked() && op != Stmt.Arith.DIVIDE) {
+            if (literal != null) return new Stmt.PackedArith(op, packedConstant(literal), target);
+            if (source.spec != null && source.spec.isPacked()) return new Stmt.PackedArith(op, source, target);
+        }
+        if (target.spec != null && target.spec.isBinary()) return new Stmt.BinaryArith(op, value, source, target);
+        return target.isNumeric() ? new Stmt.NumArith(op, value, source, target)
+                : new Stmt.Arith(op, value, source, target, sites++);
+    }
+
+    // === I/O ===
+    /** DISPLAY 操作数 ...：引号字面量（原样输出引号内的文本）、数字字面量或变量，依次输出、不加分隔 */
+    private Stmt compileDisplay(Lexer t, int from, int to) {
+        List<String> literals = new ArrayList<>();
+        List<Stmt.Ref> refs = new ArrayList<>();
+        int at = from + 1;
+        while (at < to) {
+            if (t.kind(at) == Lexer.STRING) {
+                String literal = t.text(at++);
+                literals.add(isQuoted(literal) ? literal.substring(1, literal.length() - 1) : literal.substring(1));
+                refs.add(null);
+            } else if (isName(t, at, to)) {
+                int end = operandEnd(t, at, to);
+                literals.add(null);
+                refs.add(ref(t, at, end));
+                at = end;
+            } else if (t.kind(at) == Lexer.NUMBER) {
+                literals.add(t.text(at++));
+                refs.add(null);
+            } else {
+                break;
+            }
+        }
+        if (literals.isEmpty() || at < to) throw unexpected(t, from, at, to);
+        return new Stmt.Display(literals.toArray(new String[0]), refs.toArray(new Stmt.Ref[0]));
+    }
+
+    private Stmt compileAccept(Lexer t, int from, int to) {
+        List<Stmt.Ref> targets = receivers(t, from, from + 1, to, to);
+        if (targets.size() > 1) throw unexpected(t, from, operandEnd(t, from + 1, to), to);
+        return new Stmt.Accept(targets.get(0));
+    }
+
+    // === 控制流 ===
+    /** GOTO X、GO TO X 或 GO X */
+    private Stmt compileGoto(Lexer t, int from, int to) {
+        int at = from + 1;
+        if (at < to && t.keyword(at) == CobolKeywords.TO) at++;
+        if (at + 1 != to) throw unexpected(t, from, at + 1 < to ? at + 1 : to, to);
+        return new Stmt.Goto(t.text(at).toUpperCase());
+    }
+
+    /**
+     * PERFORM [A [THRU B]] [n TIMES | [WITH TEST BEFORE/AFTER] UNTIL 条件 |
+     * VARYING X FROM a BY b UNTIL 条件 [AFTER Y FROM c BY d UNTIL 条件]...]；
+     * 没有段落名时是内联 PERFORM，语句体到 END-PERFORM 为止
+     */
+    private Stmt compilePerform(Lexer t, int from, int to) {
+        int i = from + 1;
+        String label = null, thru = null;
+        if (i < to && t.keyword(i) < 0 && isName(t.text(i)) && !isKeyword(t, i + 1, to, CobolKeywords.TIMES)) {
+            label = t.text(i++).toUpperCase();
+            if (isKeyword(t, i, to, CobolKeywords.THRU) || isKeyword(t, i, to, CobolKeywords.THROUGH)) {
+                if (!isName(t, i + 1, to)) throw unexpected(t, from, i + 1 < to ? i + 1 : to, to);
+                thru = t.text(i + 1).toUpperCase();
+                i += 2;
+            }
+        }
+        Expr times = null;
+        if (i < to && isKeyword(t, operandEnd(t, i, to), to, CobolKeywords.TIMES)) {
+            int end = operandEnd(t, i, to);
+            times = performOperand(t, i, end, "TIMES");
+            i = end + 1;
+        }
+        boolean testAfter = false;
+        if (isKeyword(t, i, to, CobolKeywords.WITH)) i++;
+        if (isKeyword(t, i, to, CobolKeywords.TEST)) {
+            testAfter = isKeyword(t, i + 1, to, CobolKeywords.AFTER);
+            i += 2;
+        }
+        boolean loop = false;
+        Predicate until = null;
+        Stmt.Varying[] varying = new Stmt.Varying[0];
+        if (isKeyword(t, i, to, CobolKeywords.UNTIL)) {
+            loop = true;
+            until = statementCondition(t, from, i + 1, to);
+        } else if (isKeyword(t, i, to, CobolKeywords.VARYING)) {
+            varying = compileVarying(t, from, i, to);
+        } else if (i < to) {
+            throw unexpected(t, from, i, to);
+        }
+        Stmt.Perform perform = new Stmt.Perform(label, thru, new Stmt[0], times, loop, until, testAfter, varying);
+        return label == null ? new PerformMark(perform) : perform;
+    }
+
+    /** VARYING X FROM a BY b UNTIL 条件，后面每个 AFTER 是内一层；FROM / BY 省略时为 1 */
+    private Stmt.Varying[] compileVarying(Lexer t, int statement, int i, int to) {
+        List<Stmt.Varying> levels = new ArrayList<>();
+        while (i + 1 < to && (isKeyword(t, i, to, CobolKeywords.VARYING) || isKeyword(t, i, to, CobolKeywords.AFTER))) {
+            int end = i + 1;
+            while (end < to && t.keyword(end) != CobolKeywords.AFTER) end++;
+            int k = operandEnd(t, i + 1, end);
+            if (!isName(t, i + 1, end)) throw unexpected(t, statement, i + 1, to);
+            Stmt.Ref var = ref(t, i + 1, k);
+            written.add(var.slot);
+            Expr from = new Expr.Const(1), by = new Expr.Const(1);
+            Predicate until = null;
+            for (; k < end; k++) {
+                int w = t.keyword(k);
+                if (w == CobolKeywords.FROM || w == CobolKeywords.BY) {
+                    int valueEnd = operandEnd(t, k + 1, end);
+                    Expr e = performOperand(t, k + 1, valueEnd, t.text(k).toUpperCase());
+                    if (w == CobolKeywords.FROM) from = e;
+                    else by = e;
+                    k = valueEnd - 1;
+                } else if (w == CobolKeywords.UNTIL) {
+                    until = statementCondition(t, statement, k + 1, end);
+                    break;
+                } else {
+                    throw unexpected(t, statement, k, to);
+                }
+            }
+            levels.add(new Stmt.Varying(var, from, by, until));
+            i = end;
+        }
+        return levels.toArray(new Stmt.Varying[0]);
+    }
+
+    /**
+     * PERFORM 的 n TIMES 与 VARYING 的 FROM / BY 操作数（记号 from..to-1，clause 是报错时的子句名）。
+     * 缺少、无法编译或有多余字符时报错，不按 0 处理：BY 0 的循环不会结束；
+     * 其中的未声明变量留到编译完成后核对（见 checkPerformOperands）
+     */
+    private Expr performOperand(Lexer t, int from, int to, String clause) {
+        String text = from < to && t.keyword(from) < 0 ? t.text(from, to) : "";
+        Expr e = text.isEmpty() ? null : compileOperand(text);
+        if (e == null) throw new CobolInterpreter.CobolError("INVALID PERFORM OPERAND: " + (clause + " " + text).trim());
+        undeclaredReads(e, clause + " " + text.toUpperCase());
+        return e;
+    }
+
+    private void undeclaredReads(Expr e, String operand) {
+        if (e instanceof Expr.Field f) {
+            if (f.ref.spec == null) performReads.putIfAbsent(f.ref.slot, operand);
+            else if (f.ref.index != null) for (Expr k : f.ref.index) if (k != null) undeclaredReads(k, operand);
+        } else if (e instanceof Expr.Add a) {
+            undeclaredReads(a.left, operand);
+            undeclaredReads(a.right, operand);
+        } else if (e instanceof Expr.Subtract a) {
+            undeclaredReads(a.left, operand);
+            undeclaredReads(a.right, operand);
+        } else if (e instanceof Expr.Multiply a) {
+            undeclaredReads(a.left, operand);
+            undeclaredReads(a.right, operand);
+        } else if (e instanceof Expr.Divide a) {
+            undeclaredReads(a.left, operand);
+            undeclaredReads(a.right, operand);
+        } else if (e instanceof Expr.Negate a) {
+            undeclaredReads(a.operand, operand);
+        }
+    }
+
+    /** 只作为接收字段出现、从来没有被读过的未声明变量：写入没有任何效果，多半是拼错的名字（MOVE A TO NOSUCH） */
+    private void checkReceivers() {
+        for (Map.Entry<Integer, Integer> e : receiverUses.entrySet()) {
+            int slot = e.getKey();
+            if (specs.get(slot) == null && uses.get(slot).equals(e.getValue()))
+                throw new CobolInterpreter.CobolError("UNDEFINED RECEIVING FIELD: " + names.get(slot));
+        }
+    }
+
+    /** 过程部中没有语句写过的未声明变量恒为 0，出现在 PERFORM 的操作数里多半是拼错的名字（BY STPE） */
+    private void checkPerformOperands() {
+        for (Map.Entry<Integer, String> e : performReads.entrySet()) {
+            if (!written.contains(e.getKey()))
+                throw new CobolInterpreter.CobolError("INVALID PERFORM OPERAND: " + e.getValue() + " IS NEVER SET");
+        }
+    }
+
+    private static boolean isKeyword(Lexer t, int i, int to, int keyword) {
+        return i < to && t.keyword(i) == keyword;
+    }
+
+    // === VARYING 寄存器 ===
+    /** 循环体不会改写 VARYING 变量、且字段格式的写入结果可以预先算出时，执行时用寄存器保存它 */
+    private void markRegisters() {
+        List<Stmt.Perform> performs = new ArrayList<>();
+        collectPerforms(procedure, performs);
+        for (Stmt[] block : paragraphs.values()) collectPerforms(block, performs);
+        for (Stmt.Perform p : performs) {
+            for (Stmt.Varying v : p.varying) {
+                CobolInterpreter.VarSpec vs = v.var.spec;
+                v.register = vs != null && vs.predictable() && v.var.index == null && !mayWrite(p, v, new HashSet<>());
+            }
+        }
+    }
+
+    private static void collectPerforms(Stmt[] block, List<Stmt.Perform> out) {
+        for (Stmt s : block) {
+            if (s instanceof Stmt.Perform p) {
+                if (p.varying.length > 0) out.add(p);
+                collectPerforms(p.body, out);
+            } else if (s instanceof Stmt.If f) {
+                collectPerforms(f.thenBlock, out);
+                collectPerforms(f.elseBlock, out);
+            } else if (s instanceof Stmt.Evaluate e) {
+                for (Stmt.WhenArm arm : e.arms) collectPerforms(arm.body, out);
+            }
+        }
+    }
+
+    /** PERFORM 的循环体（内联语句或段落范围，连同其中再 PERFORM 的段落）是否可能改写 v 的字节 */
+    private boolean mayWrite(Stmt.Perform p, Stmt.Varying v, Set<String> visited) {
+        for (Stmt.Varying w : p.varying) {
+            if (w != v && overlaps(w.var, v.var)) return true;
+        }
+        if (p.label == null) return mayWrite(p.body, v, visited);
+        List<String> order = new ArrayList<>(paragraphs.keySet());
+        int from = order.indexOf(p.label), to = p.thru != null ? order.indexOf(p.thru) : from;
+        if (from < 0) return false;
+        if (to < from) to = from;
+        for (int i = from; i <= to; i++) {
+            if (visited.add(order.get(i)) && mayWrite(paragraphs.get(order.get(i)), v, visited)) return true;
+        }
+        return false;
+    }
+
+    private boolean mayWrite(Stmt[] block, Stmt.Varying v, Set<String> visited) {
+        for (Stmt s : block) {
+            if (s.target() != null && overlaps(s.target(), v.var)) return true;
+            if (s instanceof Stmt.Goto) return true;    // 之后的控制流无法确定
+            if (s instanceof Stmt.If f && (mayWrite(f.thenBlock, v, visited) || mayWrite(f.elseBlock, v, visited))) return true;
+            if (s instanceof Stmt.Evaluate e) {
+                for (Stmt.WhenArm arm : e.arms) if (mayWrite(arm.body, v, visited)) return true;
+            }
+            if (s instanceof Stmt.Perform q && mayWrite(q, v, visited)) return true;
+        }
+        return false;
+    }
+
+    /** 两个引用的字节范围是否可能重叠；带变量下标的引用按整个表计算 */
+    private static boolean overlaps(Stmt.Ref a, Stmt.Ref b) {
+        if (a.spec == null || b.spec == null) return false;
+        int aFrom = a.index == null ? a.base : a.spec.offset;
+        int aTo = a.index == null ? a.base + a.spec.length : a.spec.offset + a.spec.counts[0] * a.spec.strides[0];
+        int bFrom = b.index == null ? b.base : b.spec.offset;
+        int bTo = b.index == null ? b.base + b.spec.length : b.spec.offset + b.spec.counts[0] * b.spec.strides[0];
+        return aFrom < bTo && bFrom < aTo;
+    }
+
+    private Stmt compileWhen(Lexer t, int from, int to) {
+        boolean other = to == from + 2 && t.keyword(from + 1) == CobolKeywords.OTHER;
+        return new WhenMark(other, conditionTokens(t, from + 1, to));
+    }
+
+    // === 条件 ===
+    private static final Map<String, Integer> CLASS_WORDS = Map.of(
+            "NUMERIC", Predicate.ClassTest.NUMERIC,
+            "ALPHABETIC", Predicate.ClassTest.ALPHABETIC,
+            "ALPHABETIC-UPPER", Predicate.ClassTest.ALPHABETIC_UPPER,
+            "ALPHABETIC-LOWER", Predicate.ClassTest.ALPHABETIC_LOWER);
+    private static final Map<String, Integer> SIGN_WORDS = Map.of(
+            "POSITIVE", Predicate.SignTest.POSITIVE,
+            "NEGATIVE", Predicate.SignTest.NEGATIVE,
+            "ZERO", Predicate.SignTest.ZERO);
+    private static final Set<String> ZEROS = Set.of("ZERO", "ZEROS", "ZEROES");
+
+    /**
+     * 条件（conditionTokens 切分的记号）编译成 Predicate 树；无法识别时报 INVALID CONDITION，
+     * 条件之后还有记号时报 verb 语句中多余的记号（不当作恒为假的条件悄悄跳过）
+     */
+    private Predicate compileCondition(List<String> tokens, String verb) {
+        ConditionParser parser = new ConditionParser(tokens);
+        Predicate p;
+        try { p = parser.parseOr(); }
+        catch (IllegalArgumentException e) {
+            throw new CobolInterpreter.CobolError("INVALID CONDITION: " + String.join(" ", tokens).toUpperCase());
+        }
+        if (parser.i < tokens.size())
+            throw new CobolInterpreter.CobolError("UNEXPECTED TOKENS IN " + verb + ": "
+                    + String.join(" ", tokens.subList(parser.i, tokens.size())).toUpperCase());
+        return p;
+    }
+
+    /** IF / PERFORM UNTIL 的条件（记号 at..to-1，语句从 from 开始），可以以 THEN 结束；没有条件时语句不完整 */
+    private Predicate statementCondition(Lexer t, int from, int at, int to) {
+        List<String> tokens = conditionTokens(t, at, to);
+        if (!tokens.isEmpty() && tokens.get(tokens.size() - 1).equalsIgnoreCase("THEN")) tokens.remove(tokens.size() - 1);
+        if (tokens.isEmpty()) throw unexpected(t, from, to, to);
+        return compileCondition(tokens, t.text(from).toUpperCase());
+    }
+
+    /**
+     * 条件与 EVALUATE / WHEN 的记号 from..to-1 再细分：引号字面量原样是一项，
+     * 名字连同紧跟的下标（可以跨记号：TAB(I, J)）是一项，括号与关系运算符单独成项（A>B 是三项）
+     */
+    private static List<String> conditionTokens(Lexer t, int from, int to) {
+        List<String> out = new ArrayList<>();
+        for (int k = from; k < to; ) {
+            if (t.kind(k) == Lexer.STRING) {
+                out.add(t.text(k++));
+                continue;
+            }
+            int end = opensSubscript(t.text(k)) ? operandEnd(t, k, to) : k + 1;
+            split(t.text(k, end), out);
+            k = end;
+        }
+        return out;
+    }
+
+    /** 名字后面紧跟着没有配对的左括号（TAB(I, 的下标跨到后面的记号），不是分组的括号 */
+    private static boolean opensSubscript(String s) {
+        int open = s.indexOf('(');
+        return open > 0 && Character.isLetterOrDigit(s.charAt(open - 1)) && parens(s) > 0;
+    }
+
+    private static void split(String s, List<String> out) {
+        int i = 0, n = s.length();
+        while (i < n) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) { i++; continue; }
+            int start = i;
+            if (c == '(' || c == ')') {
+                i++;
+            } else if (c == '<' || c == '>' || c == '=') {
+                i++;
+                if (i < n && (s.charAt(i) == '=' || c == '<' && s.charAt(i) == '>')) i++;
+            } else {
+                while (i < n && !Character.isWhitespace(s.charAt(i)) && "()<>=".indexOf(s.charAt(i)) < 0) i++;
+                if (i < n && s.charAt(i) == '(') {
+                    int close = s.indexOf(')', i);
+                    i = close < 0 ? n : close + 1;
+                }
+            }
+            out.add(s.substring(start, i));
+        }
+    }
+
+    /**
+     * 组合条件：OR 优先级最低，其次 AND、NOT；括号分组。
+     * 省略主语的关系（A > B AND < C）沿用上一个关系的主语，主语与运算符都省略时（A = 1 OR 2）一并沿用
+     */
+    private final class ConditionParser {
+        private final List<String> t;
+        private int i = 0;
+        private Stmt.Operand subject;
+        private String op;
+        ConditionParser(List<String> t) { this.t = t; }
+
+        Predicate parseOr() {
+            Predicate p = parseAnd();
+            while (word("OR")) p = new Predicate.Or(p, parseAnd());
+            return p;
+        }
+
+        Predicate parseAnd() {
+            Predicate p = parseNot();
+            while (word("AND")) p = new Predicate.And(p, parseNot());
+            return p;
+        }
+
+        /** NOT 后面紧跟关系运算符时属于省略主语的关系，不是逻辑非 */
+        Predicate parseNot() {
+            int save = i;
+            if (word("NOT")) {
+                if (subject == null || relop() == null) return Predicate.not(parseNot());
+                i = save;
+            }
+            return parsePrimary();
+        }
+
+        Predicate parsePrimary() {
+            if (word("(")) {
+                Predicate p = parseOr();
+                if (!word(")")) throw new IllegalArgumentException("missing )");
+                return p;
+            }
+            if (subject != null) {
+                String o = relop();
+                if (o != null) {
+                    op = o;
+                    return relation(subject, o, next());
+                }
+            }
+            String token = next();
+            int save = i;
+            word("IS");
+            boolean not = word("NOT");
+            String w = i < t.size() ? t.get(i).toUpperCase() : "";
+            if (CLASS_WORDS.containsKey(w) || SIGN_WORDS.containsKey(w)) {
+                i++;
+                Predicate p;
+                if (CLASS_WORDS.containsKey(w)) {
+                    Stmt.Operand o = operand(token);
+                    if (o.ref == null) throw new IllegalArgumentException(token);
+                    p = new Predicate.ClassTest(o.ref, CLASS_WORDS.get(w));
+                } else {
+                    Expr e = compileExpression(token);
+                    if (e == null) throw new IllegalArgumentException(token);
+                    p = new Predicate.SignTest(e, SIGN_WORDS.get(w));
+                }
+                return not ? Predicate.not(p) : p;
+            }
+            i = save;
+            String o = relop();
+            if (o != null) {
+                subject = operand(token);
+                op = o;
+                return relation(subject, o, next());
+            }
+            if (subject == null) throw new IllegalArgumentException(token);
+            return relation(subject, op, token);
+        }
+
+        /** [IS] [NOT] 关系运算符，规范成 = <> > < >= <=；不是关系运算符时不消耗记号并返回 null */
+        String relop() {
+            int save = i;
+            word("IS");
+            boolean not = word("NOT");
+            String o = null;
+            String w = i < t.size() ? t.get(i).toUpperCase() : "";
+            switch (w) {
+                case "=", "<>", ">", "<", ">=", "<=" -> {
+                    i++;
+                    o = w;
+                }
+                case "EQUAL" -> {
+                    i++;
+                    word("TO");
+                    o = "=";
+                }
+                case "GREATER", "LESS" -> {
+                    i++;
+                    word("THAN");
+                    o = w.equals("GREATER") ? ">" : "<";
+                    if (i + 1 < t.size() && t.get(i).equalsIgnoreCase("OR") && t.get(i + 1).equalsIgnoreCase("EQUAL")) {
+                        i += 2;
+                        word("TO");
+                        o += "=";
+                    }
+                }
+                default -> {}
+            }
+            if (o == null) {
+                i = save;
+                return null;
+            }
+            return not ? negate(o) : o;
+        }
+
+        private Stmt.Condition relation(Stmt.Operand left, String o, String right) {
+            Stmt.Operand r = operand(right);
+            if (r.ref == null && r.numeric && left.ref != null && left.ref.spec != null && left.ref.spec.isPacked())
+                r = new Stmt.Operand(packedConstant((long) r.literal), r.literal, true);
+            return new Stmt.Condition(left, o, r, sites++);
+        }
+
+        private String next() {
+            if (i >= t.size()) throw new IllegalArgumentException("missing operand");
+            return t.get(i++);
+        }
+
+        private boolean word(String w) {
+            if (i >= t.size() || !t.get(i).equalsIgnoreCase(w)) return false;
+            i++;
+            return true;
+        }
+    }
+
+    private static String negate(String op) {
+        return switch (op) {
+            case "=" -> "<>";
+            case "<>" -> "=";
+            case ">" -> "<=";
+            case "<" -> ">=";
+            case ">=" -> "<";
+            default -> ">";
+        };
+    }
+
+    /**
+     * 整数字面量与 ZERO 是数值常量，引号字面量取引号内的文本；
+     * 名字（可带下标）绑定到变量（未赋值时取原文），其它记号按原文比较
+     */
+    private Stmt.Operand operand(String token) {
+        Long number = ZEROS.contains(token.toUpperCase()) ? Long.valueOf(0) : intLiteral(token);
+        if (number != null) return new Stmt.Operand(null, number, true);
+        if (isQuoted(token)) return new Stmt.Operand(null, token.substring(1, token.length() - 1), false);
+        int open = token.indexOf('(');
+        if (!isName(open > 0 && token.endsWith(")") ? token.substring(0, open) : token))
+            return new Stmt.Operand(null, token, false);
+        Stmt.Ref ref = ref(token);
+        return new Stmt.Operand(ref, token, ref.isNumeric());
+    }
+}
@@ -1,16 +1,11 @@
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 /**
  * 一个简化版 COBOL 解释器，用于 Java
@@ -23,455 +18,225 @@ import java.util.regex.Pattern;
  * - SECTION / PARAGRAPH 调用
  * - GOTO
  * - EVALUATE ... WHEN ... END-EVALUATE
+ * - OCCURS 表与下标引用
+ * - USAGE COMP-3 / PACKED-DECIMAL
+ * - USAGE COMP / COMP-4 / BINARY / COMP-5
  * - STOP RUN
+ * - 可选的字节码执行层
  */
 public class CobolInterpreter {
-    private final Map<String, Object> variables = new HashMap<>();
-    private final Map<String, VarSpec> varSpecs = new HashMap<>();
-    private final Map<String, List<String>> paragraphs = new HashMap<>();
-    private final List<String> output = new ArrayList<>();
-    private boolean running = true;
-    private Iterator<String> lineIterator;
-    private final Scanner scanner = new Scanner(System.in);
+    // 每次 run() 编译（或从缓存读入）一个不可变的 CobolProgram，再用新的 CobolRun 执行；
+    // 这里只保存运行选项，需要在多个线程上运行同一个程序时直接使用 CobolProgram / CobolRun
+    private boolean offHeap;
+    private boolean bytecode;
+    private ProgramCache cache;
+    private boolean fixedFormat;
+    private CopybookLibrary copybooks;
+    private boolean mapped;
+    private boolean ebcdic;
 
     /** 从文件运行 COBOL 程序 */
     public List<String> runFile(Path path) throws IOException {
-        List<String> lines = Files.readAllLines(path);
-        return run(lines);
+        List<String> output = new ArrayList<>();
+        runFile(path, output::add);
+        return output;
     }
 
-    /** 从内存运行 COBOL 程序 */
-    public List<String> run(List<String> lines) {
-        variables.clear();
-        varSpecs.clear();
-        paragraphs.clear();
-        output.clear();
-        running = true;
-
-        parseDataDivision(lines);
-        preprocessParagraphs(lines);
-        List<String> procedure = extractProcedure(lines);
-        executeBlock(procedure);
-
-        return new ArrayList<>(output);
-    }
-
-    /** DATA DIVISION -> 解析变量声明 (PIC) */
-    private void parseDataDivision(List<String> lines) {
-        boolean inData = false, inWorking = false;
-        Pattern picPattern = Pattern.compile("PIC\\s+([9Xx][^\\s.]*)", Pattern.CASE_INSENSITIVE);
-
-        for (String raw : lines) {
-            String line = raw.trim();
-            if (line.isEmpty() || line.startsWith("*")) continue;
-            String up = line.toUpperCase();
-            if (up.startsWith("DATA DIVISION")) { inData = true; continue; }
-            if (!inData) continue;
-            if (up.startsWith("PROCEDURE DIVISION")) break;
-            if (up.contains("WORKING-STORAGE SECTION")) { inWorking = true; continue; }
-            if (!inWorking) continue;
-
-            Matcher m = picPattern.matcher(line);
-            if (m.find()) {
-                String picToken = m.group(1);
-                String beforePic = line.substring(0, m.start()).trim();
-                String[] tokens = beforePic.split("\\s+");
-                if (tokens.length >= 2) {
-                    String varName = tokens[tokens.length - 1].replaceAll("\\.", "").toUpperCase();
-                    VarSpec spec = parsePicToken(picToken);
-                    varSpecs.put(varName, spec);
-                    variables.put(varName, spec.isNumeric ? 0 :
-                            String.format("%1$" + spec.length + "s", ""));
-                }
-            }
+    /** 从文件运行 COBOL 程序，DISPLAY 的每一行在产生时交给 sink */
+    public void runFile(Path path, Consumer<? super String> sink) throws IOException {
+        CobolProgram program;
+        try {
+            program = compileFile(path);
+        } catch (CobolError e) {
+            sink.accept("ERROR: " + e.getMessage());
+            return;
         }
+        new CobolRun(program, offHeap, null, sink).run(bytecode);
     }
 
-    private VarSpec parsePicToken(String pic) {
-        pic = pic.trim().toUpperCase();
-        boolean isNumeric = pic.startsWith("9");
-        int length = 0;
-        Pattern p = Pattern.compile("([9X])(\\((\\d+)\\))?");
-        Matcher m = p.matcher(pic);
-        while (m.find()) {
-            String num = m.group(3);
-            length += (num != null) ? Integer.parseInt(num) : 1;
-        }
-        return new VarSpec(isNumeric, length);
-    }
+    /**
+     * runFile 把源文件映射到内存，词法分析直接读映射的字节，只保留其中的位置，
+     * 不先解码成 List<String>（适合很大的生成程序）
+     */
+    public void setMemoryMapped(boolean mapped) { this.mapped = mapped; }
 
-    private static class VarSpec {
-        final boolean isNumeric;
-        final int length;
-        VarSpec(boolean isNumeric, int length) {
-            this.isNumeric = isNumeric;
-            this.length = length;
-        }
-    }
+    /** 源文件为 EBCDIC（IBM037）编码，runFile 按字节查表读取（总是内存映射） */
+    public void setEbcdic(boolean ebcdic) { this.ebcdic = ebcdic; }
 
-    /** PROCEDURE 段落预处理 */
-    private void preprocessParagraphs(List<String> lines) {
-        boolean inProcedure = false;
-        String currentParagraph = null;
-        List<String> buffer = new ArrayList<>();
-        for (String raw : lines) {
-            String line = raw.trim();
-            if (line.isEmpty() || line.startsWith("*")) continue;
-            if (line.toUpperCase().startsWith("PROCEDURE DIVISION")) { inProcedure = true; continue; }
-            if (inProcedure) {
-                if (line.endsWith(".")) {
-                    String token = line.substring(0, line.length() - 1).trim();
-                    if (token.matches("[A-Z0-9-]+")) {
-                        if (currentParagraph != null) {
-                            paragraphs.put(currentParagraph, new ArrayList<>(buffer));
-                            buffer.clear();
-                        }
-                        currentParagraph = token.toUpperCase();
-                        continue;
-                    }
-                }
-                if (currentParagraph != null) buffer.add(line);
-            }
-        }
-        if (currentParagraph != null && !buffer.isEmpty()) {
-            paragraphs.put(currentParagraph, buffer);
-        }
-    }
+    /**
+     * WORKING-STORAGE 放在堆外直接内存中（适合很大的 OCCURS 表），
+     * 每次 run() 分配，结束时立即释放
+     */
+    public void setOffHeap(boolean offHeap) { this.offHeap = offHeap; }
 
-    /** 提取 PROCEDURE DIVISION 主体 */
-    private List<String> extractProcedure(List<String> lines) {
-        boolean inProcedure = false;
-        List<String> procedure = new ArrayList<>();
-        for (String raw : lines) {
-            String line = raw.trim();
-            if (line.isEmpty() || line.startsWith("*")) continue;
-            if (line.toUpperCase().startsWith("PROCEDURE DIVISION")) { inProcedure = true; continue; }
-            if (inProcedure) procedure.add(line);
-        }
-        return procedure;
-    }
+    /**
+     * 把程序编译成 JVM 字节码执行（见 BytecodeTier），
+     * 运行环境没有 javac 时仍由解释器执行；解释器的结果是参照标准
+     */
+    public void setBytecode(boolean bytecode) { this.bytecode = bytecode; }
 
-    /** 执行一个 block */
-    private void executeBlock(List<String> block) {
-        lineIterator = block.iterator();
-        while (lineIterator.hasNext() && running) {
-            String line = lineIterator.next().trim();
-            if (!line.isEmpty()) execute(line);
-        }
-    }
+    /** 源码为固定格式：1-6 列序号、7 列指示符（注释、调试行、续行）、73 列之后的标识不参与编译 */
+    public void setFixedFormat(boolean fixedFormat) { this.fixedFormat = fixedFormat; }
 
-    /** 执行一行 */
-    private void execute(String line) {
-        String upper = line.trim().toUpperCase();
-        if (upper.startsWith("MOVE")) handleMove(line);
-        else if (upper.startsWith("COMPUTE")) handleCompute(line);
-        else if (upper.startsWith("GOTO")) handleGoto(line);
-        else if (upper.startsWith("EVALUATE")) handleEvaluate(line);
-        else if (upper.startsWith("ADD")) handleAdd(line);
-        else if (upper.startsWith("SUBTRACT")) handleSubtract(line);
-        else if (upper.startsWith("MULTIPLY")) handleMultiply(line);
-        else if (upper.startsWith("DIVIDE")) handleDivide(line);
-        else if (upper.startsWith("DISPLAY")) handleDisplay(line);
-        else if (upper.startsWith("ACCEPT")) handleAccept(line);
-        else if (upper.startsWith("IF")) handleIf(line);
-        else if (upper.startsWith("PERFORM")) handlePerform(line);
-        else if (upper.startsWith("STOP RUN")) running = false;
-    }
+    /** COPY 在 library 的目录中查找成员；同一个库可以给多个解释器共用，每个成员只读入、分析一次 */
+    public void setCopybookLibrary(CopybookLibrary library) { this.copybooks = library; }
 
-    // === COMPUTE / GOTO / EVALUATE ===
-    private void handleCompute(String line) {
-        String cleaned = line.trim();
-        if (cleaned.endsWith(".")) cleaned = cleaned.substring(0, cleaned.length() - 1);
-        int eq = cleaned.indexOf('=');
-        if (eq < 0) return;
-        String left = cleaned.substring(7, eq).trim().toUpperCase();
-        String expr = cleaned.substring(eq + 1).trim();
-        Integer val = evalExpression(expr);
-        if (val == null) return;
-        VarSpec vs = varSpecs.get(left);
-        if (vs != null && !vs.isNumeric) {
-            String s = String.valueOf(val);
-            if (vs.length > 0) s = s.length() > vs.length ? s.substring(0, vs.length) :
-                    String.format("%1$-" + vs.length + "s", s);
-            variables.put(left, s);
-        } else variables.put(left, val);
-    }
+    /** 编译结果缓存在 dir 中（以源码哈希为文件名），同样的源码再次运行时跳过解析；为 null 时不缓存 */
+    public void setCacheDir(Path dir) { this.cache = dir != null ? new ProgramCache(dir) : null; }
 
-    private void handleGoto(String line) {
-        String cleaned = line.trim();
-        if (cleaned.endsWith(".")) cleaned = cleaned.substring(0, cleaned.length() - 1);
-        String[] parts = cleaned.split("\\s+");
-        if (parts.length < 2) return;
-        String label = parts[1].toUpperCase();
-        if (paragraphs.containsKey(label)) executeBlock(paragraphs.get(label));
+    /** 从内存运行 COBOL 程序，返回 DISPLAY 的全部输出 */
+    public List<String> run(List<String> lines) {
+        List<String> output = new ArrayList<>();
+        run(lines, output::add);
+        return output;
     }
 
-    private void handleEvaluate(String firstLine) {
-        String expr = firstLine.substring(8).trim();
-        List<WhenBlock> blocks = new ArrayList<>();
-        WhenBlock current = null;
-        while (lineIterator.hasNext()) {
-            String next = lineIterator.next().trim();
-            String up = next.toUpperCase();
-            if (up.startsWith("WHEN ")) {
-                if (current != null) blocks.add(current);
-                current = new WhenBlock();
-                current.when = next.substring(5).trim();
-                current.lines = new ArrayList<>();
-                continue;
-            }
-            if (up.startsWith("WHEN OTHER")) {
-                if (current != null) blocks.add(current);
-                current = new WhenBlock();
-                current.when = "OTHER";
-                current.lines = new ArrayList<>();
-                continue;
-            }
-            if (up.startsWith("END-EVALUATE")) {
-                if (current != null) blocks.add(current);
-                break;
-            }
-            if (current != null) current.lines.add(next);
-        }
-        Integer val = evalExpression(expr);
-        String sval = val == null ? expr : String.valueOf(val);
-        for (WhenBlock wb : blocks) {
-            if ("OTHER".equalsIgnoreCase(wb.when)) {
-                executeBlock(wb.lines); break;
-            }
-            boolean matched = false;
-            String whenTrim = wb.when.trim();
-            if (whenTrim.matches("-?\\d+") && val != null)
-                matched = Integer.valueOf(whenTrim).equals(val);
-            else if (whenTrim.startsWith("'") && whenTrim.endsWith("'"))
-                matched = whenTrim.substring(1, whenTrim.length() - 1).equals(sval);
-            else matched = whenTrim.equals(sval) || whenTrim.equalsIgnoreCase(sval);
-
-            if (matched) { executeBlock(wb.lines); break; }
+    /** 从内存运行 COBOL 程序，DISPLAY 的每一行（以及 ERROR 行）在产生时交给 sink，不在内存中保留 */
+    public void run(List<String> lines, Consumer<? super String> sink) {
+        CobolProgram program;
+        try {
+            program = compile(lines);
+        } catch (CobolError e) {
+            sink.accept("ERROR: " + e.getMessage());
+            return;
         }
+        new CobolRun(program, offHeap, null, sink).run(bytecode);
     }
 
-    private static class WhenBlock {
-        String when;
-        List<String> lines;
-    }
-
-    // === 表达式解析 ===
-    private Integer evalExpression(String expr) {
-        try { return new ExprParser(expr).parseExpression(); }
-        catch (Exception e) { return null; }
-    }
-
-    private class ExprParser {
-        private final String s;
-        private int idx = 0;
-        ExprParser(String s) { this.s = s; }
-        int parseExpression() {
-            int v = parseTerm();
-            while (true) {
-                skipWhitespace();
-                if (peek() == '+') { idx++; v += parseTerm(); }
-                else if (peek() == '-') { idx++; v -= parseTerm(); }
-                else break;
-            }
-            return v;
-        }
-        int parseTerm() {
-            int v = parseFactor();
-            while (true) {
-                skipWhitespace();
-                if (peek() == '*') { idx++; v *= parseFactor(); }
-                else if (peek() == '/') { idx++; v /= parseFactor(); }
-                else break;
-            }
-            return v;
-        }
-        int parseFactor() {
-            skipWhitespace();
-            char c = peek();
-            if (c == '(') { idx++; int v = parseExpression(); skipWhitespace(); if (peek() == ')') idx++; return v; }
-            if (c == '+' || c == '-' || Character.isDigit(c)) {
-                int start = idx; if (c == '+' || c == '-') idx++;
-                while (Character.isDigit(peek())) idx++;
-                return Integer.valueOf(s.substring(start, idx).trim());
-            }
-            int start = idx;
-            while (Character.isLetterOrDigit(peek()) || peek()=='-') idx++;
-            String name = s.substring(start, idx).trim();
-            Object v = variables.getOrDefault(name.toUpperCase(), variables.getOrDefault(name, 0));
-            if (v instanceof Integer) return (int) v;
-            try { return Integer.valueOf(String.valueOf(v).trim()); } catch (Exception e) { return 0; }
+    /**
+     * 批量运行：程序编译一次，对 inputs 中的每一项（ACCEPT 依次读到的各行）各运行一次，
+     * 同时运行的个数不超过 concurrency（见 CobolBatch）；返回各次的输出，与 inputs 顺序相同
+     */
+    public List<List<String>> runBatch(List<String> lines, List<List<String>> inputs, int concurrency)
+            throws InterruptedException {
+        CobolProgram program;
+        try {
+            program = compile(lines);
+        } catch (CobolError e) {
+            return errors(inputs.size(), e);
         }
-        char peek() { return idx >= s.length() ? '\0' : s.charAt(idx); }
-        void skipWhitespace() { while (Character.isWhitespace(peek())) idx++; }
-    }
-
-    // === 基础运算 ===
-    private void handleMove(String line) {
-        String cleaned = line.trim();
-        if (cleaned.endsWith(".")) cleaned = cleaned.substring(0, cleaned.length() - 1);
-        int toIdx = cleaned.toUpperCase().lastIndexOf(" TO ");
-        if (toIdx < 0) return;
-        String valuePart = cleaned.substring(4, toIdx).trim();
-        String var = cleaned.substring(toIdx + 4).trim().toUpperCase().replaceAll("\\.$", "");
-        Object toValue;
-        if ((valuePart.startsWith("'") && valuePart.endsWith("'")) || (valuePart.startsWith("\"") && valuePart.endsWith("\"")))
-            toValue = valuePart.substring(1, valuePart.length() - 1);
-        else if (valuePart.matches("-?\\d+"))
-            toValue = Integer.valueOf(valuePart);
-        else toValue = variables.getOrDefault(valuePart.toUpperCase(), variables.getOrDefault(valuePart, 0));
-
-        VarSpec targetSpec = varSpecs.get(var);
-        if (targetSpec != null) {
-            if (targetSpec.isNumeric) {
-                try { variables.put(var, Integer.valueOf(String.valueOf(toValue).trim())); }
-                catch (Exception e) { variables.put(var, 0); }
-            } else {
-                String s = String.valueOf(toValue == null ? "" : toValue);
-                if (targetSpec.length > 0)
-                    s = s.length() > targetSpec.length ? s.substring(0, targetSpec.length) :
-                        String.format("%1$-" + targetSpec.length + "s", s);
-                variables.put(var, s);
-            }
-        } else variables.put(var, toValue);
-    }
-
-    private void handleAdd(String line) {
-        String[] parts = line.replace(".", "").trim().split("\\s+");
-        if (parts.length < 4) return;
-        int value = Integer.parseInt(parts[1]);
-        String var = parts[3].toUpperCase();
-        int old = (variables.getOrDefault(var, 0) instanceof Integer) ? (int) variables.get(var) : 0;
-        variables.put(var, old + value);
+        return runBatch(program, inputs, concurrency);
     }
 
-    private void handleSubtract(String line) {
-        String[] parts = line.replace(".", "").trim().split("\\s+");
-        if (parts.length < 4) return;
-        int value = Integer.parseInt(parts[1]);
-        String var = parts[3].toUpperCase();
-        int old = (variables.getOrDefault(var, 0) instanceof Integer) ? (int) variables.get(var) : 0;
-        variables.put(var, old - value);
+    /** 同上，程序从文件读入（按 setMemoryMapped / setEbcdic） */
+    public List<List<String>> runBatch(Path path, List<List<String>> inputs, int concurrency)
+            throws IOException, InterruptedException {
+        CobolProgram program;
+        try {
+            program = compileFile(path);
+        } catch (CobolError e) {
+            return errors(inputs.size(), e);
+        }
+        return runBatch(program, inputs, concurrency);
     }
 
-    private void handleMultiply(String line) {
-        String[] parts = line.replace(".", "").trim().split("\\s+");
-        if (parts.length < 4) return;
-        int value = Integer.parseInt(parts[1]);
-        String var = parts[3].toUpperCase();
-        int old = (variables.getOrDefault(var, 0) instanceof Integer) ? (int) variables.get(var) : 0;
-        variables.put(var, old * value);
+    private static List<List<String>> errors(int n, CobolError e) {
+        List<List<String>> results = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) results.add(new ArrayList<>(List.of("ERROR: " + e.getMessage())));
+        return results;
     }
 
-    private void handleDivide(String line) {
-        String[] parts = line.replace(".", "").trim().split("\\s+");
-        if (parts.length < 4) return;
-        int value = Integer.parseInt(parts[1]);
-        String var = parts[3].toUpperCase();
-        int old = (variables.getOrDefault(var, 0) instanceof Integer) ? (int) variables.get(var) : 0;
-        if (value != 0) variables.put(var, old / value);
-        else output.add("ERROR: DIVIDE BY ZERO");
+    private List<List<String>> runBatch(CobolProgram program, List<List<String>> inputs, int concurrency)
+            throws InterruptedException {
+        CobolBatch batch = new CobolBatch(program);
+        batch.setConcurrency(concurrency);
+        batch.setOffHeap(offHeap);
+        batch.setBytecode(bytecode);
+        return batch.run(inputs);
     }
 
-    // === I/O ===
-    private void handleDisplay(String line) {
-        String cleaned = line.replace(".", "").trim();
-        String after = cleaned.substring(7).trim();
-        if ((after.startsWith("'") && after.endsWith("'")) || (after.startsWith("\"") && after.endsWith("\""))) {
-            output.add(after.substring(1, after.length() - 1));
-            return;
-        }
-        String arg = after.split("\\s+")[0].toUpperCase();
-        Object value = variables.getOrDefault(arg, arg);
-        VarSpec vs = varSpecs.get(arg);
-        if (vs != null && vs.isNumeric) output.add(String.valueOf(variables.getOrDefault(arg, 0)));
-        else output.add(String.valueOf(value));
+    private CobolProgram compile(List<String> lines) {
+        return compile(String.join("\n", lines));
     }
 
-    private void handleAccept(String line) {
-        String cleaned = line.replace(".", "").trim();
-        String[] parts = cleaned.split("\\s+");
-        if (parts.length < 2) return;
-        String var = parts[1].toUpperCase();
-        try {
-            String input = (System.console() != null) ? System.console().readLine() :
-                    (scanner.hasNextLine() ? scanner.nextLine() : "");
-            if (input == null) return;
-            if (input.matches("-?\\d+")) variables.put(var, Integer.valueOf(input));
-            else {
-                VarSpec vs = varSpecs.get(var);
-                if (vs != null && !vs.isNumeric && vs.length > 0) {
-                    if (input.length() > vs.length) input = input.substring(0, vs.length);
-                    else if (input.length() < vs.length) input = String.format("%1$-" + vs.length + "s", input);
-                }
-                variables.put(var, input);
-            }
-        } catch (NoSuchElementException ignored) {}
+    private CobolProgram compileFile(Path path) throws IOException {
+        if (mapped || ebcdic) return compile(MappedSource.open(path, ebcdic));
+        return compile(Files.readAllLines(path));
     }
 
-    // === 条件 ===
-    private void handleIf(String firstLine) {
-        String conditionLine = firstLine;
-        List<String> trueBlock = new ArrayList<>(), falseBlock = new ArrayList<>(), current = trueBlock;
-        while (lineIterator.hasNext()) {
-            String next = lineIterator.next().trim();
-            if (next.toUpperCase().startsWith("ELSE")) { current = falseBlock; continue; }
-            if (next.toUpperCase().startsWith("END-IF")) break;
-            current.add(next);
-        }
-        boolean cond = evalCondition(conditionLine.substring(2).trim());
-        executeBlock(cond ? trueBlock : falseBlock);
+    private CobolProgram compile(CharSequence source) {
+        return cache != null ? cache.compile(source, fixedFormat, copybooks) : CobolProgram.compile(source, fixedFormat, copybooks);
     }
 
-    private boolean evalCondition(String expr) {
-        String[] parts = expr.split("\\s+");
-        if (parts.length < 3) return false;
-        String left = parts[0], op = parts[1], right = parts[2];
-        Object l
-
-    = variables.getOrDefault(left.toUpperCase(), left);
-            Object r = right.matches("-?\\d+") ? Integer.valueOf(right) :
-                    variables.getOrDefault(right.toUpperCase(), right);
-            if (l instanceof Integer && r instanceof Integer) {
-                int li = (int) l, ri = (int) r;
-                return switch (op) {
-                    case "=" -> li == ri;
-                    case "<>" -> li != ri;
-                    case ">" -> li > ri;
-                    case "<" -> li < ri;
-                    case ">=" -> li >= ri;
-                    case "<=" -> li <= ri;
-                    default -> false;
-                };
-            } else {
-                String ls = String.valueOf(l), rs = String.valueOf(r);
-                return switch (op) {
-                    case "=" -> ls.equals(rs);
-                    case "<>" -> !ls.equals(rs);
-                    case ">" -> ls.compareTo(rs) > 0;
-                    case "<" -> ls.compareTo(rs) < 0;
-                    case ">=" -> ls.compareTo(rs) >= 0;
-                    case "<=" -> ls.compareTo(rs) <= 0;
-                    default -> false;
-                };
-            }
-        }
-    
-        // === 循环 ===
-        private void handlePerform(String line) {
-            String cleaned = line.replace(".", "").trim();
-            String[] parts = cleaned.split("\\s+");
-            if (parts.length < 2) return;
-            String label = parts[1].toUpperCase();
-            if (!paragraphs.containsKey(label)) return;
-    
-            if (cleaned.contains("UNTIL")) {
-                String condition = cleaned.substring(cleaned.indexOf("UNTIL") + 5).trim();
-                do {
-                    executeBlock(paragraphs.get(label));
-                } while (!evalCondition(condition) && running);
-            } else {
-                executeBlock(paragraphs.get(label));
-            }
-        }
-    }
\ No newline at end of file
+    /**
+     * 已声明字段的描述：在记录中的偏移量、字节长度与格式（组项按字符处理）；
+     * OCCURS 表中的字段带有从外到内各维的元素间距与元素个数，offset 为第一个元素的位置
+     */
+    static final class VarSpec implements Serializable {
+        private static final long serialVersionUID = 1L;
+        // 数值字段的存储格式：DISPLAY（zoned）、PACKED（COMP-3）、
+        // BINARY（COMP / COMP-4，大端）、NATIVE（COMP-5，本机字节序）
+        static final int DISPLAY = 0, PACKED = 1, BINARY = 2, NATIVE = 3;
+        final boolean isNumeric;
+        final boolean signed;
+        final int usage;
+        final int digits;       // PIC 中 9 的个数
+        final int offset;
+        final int length;
+        final int[] strides;
+        final int[] counts;
+        final long mask;        // 无符号二进制字段读出时的掩码
+        final long modulus;     // COMP / COMP-4 按 PIC 位数截断的模，其它为 0
+        VarSpec(boolean isNumeric, boolean signed, int usage, int digits, int offset, int length, int[] strides, int[] counts) {
+            this.isNumeric = isNumeric;
+            this.signed = signed;
+            this.usage = usage;
+            this.digits = digits;
+            this.offset = offset;
+            this.length = length;
+            this.strides = strides;
+            this.counts = counts;
+            this.mask = isBinary() && !signed && length < 8 ? (1L << (8 * length)) - 1 : -1L;
+            long m = 1;
+            for (int i = 0; i < digits && i < 18; i++) m *= 10;
+            this.modulus = usage == BINARY && digits <= 18 ? m : 0;
+        }
+        boolean isPacked() { return isNumeric && usage == PACKED; }
+        boolean isBinary() { return isNumeric && (usage == BINARY || usage == NATIVE); }
+        /** 写入二进制字段前的截断：COMP 按 PIC 位数，COMP-5 只受字段宽度限制；无符号字段取绝对值 */
+        long truncate(long v) {
+            if (modulus != 0) v %= modulus;
+            return signed || v >= 0 ? v : -v;
+        }
+        /** 写入后再读出得到的值：DISPLAY / COMP-3 / COMP 按 PIC 位数截断，无符号取绝对值；COMP-5 不能预先算出 */
+        boolean predictable() { return isNumeric && usage != NATIVE && digits <= 18; }
+
+        long stored(long v) {
+            if (usage == BINARY) return truncate(v);
+            long m = 1;
+            for (int i = 0; i < digits; i++) m *= 10;
+            long r = Math.abs(v) % m;
+            return signed && v < 0 ? -r : r;
+        }
+
+        /** 二进制字节位数对应的字段长度：1-4 位 2 字节，5-9 位 4 字节，10-18 位 8 字节 */
+        static int binaryLength(int digits) { return digits <= 4 ? 2 : digits <= 9 ? 4 : 8; }
+    }
+
+    /** 运行时错误（如下标越界），终止程序并输出 ERROR 行 */
+    static final class CobolError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        CobolError(String message) { super(message); }
+    }
+
+    /** 字符比较：较短的一边按空格补齐到同样长度 */
+    static boolean compareText(String op, String ls, String rs) {
+        int n = Math.max(ls.length(), rs.length()), c = 0;
+        for (int i = 0; i < n && c == 0; i++) {
+            c = (i < ls.length() ? ls.charAt(i) : ' ') - (i < rs.length() ? rs.charAt(i) : ' ');
+        }
+        return compare(op, c, 0);
+    }
+
+    static boolean compare(String op, long li, long ri) {
+        return switch (op) {
+            case "=" -> li == ri;
+            case "<>" -> li != ri;
+            case ">" -> li > ri;
+            case "<" -> li < ri;
+            case ">=" -> li >= ri;
+            case "<=" -> li <= ri;
+            default -> false;
+        };
+    }
+}
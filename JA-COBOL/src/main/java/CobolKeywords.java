@@ -1,4 +1,7 @@
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 public class CobolKeywords {
@@ -48,4 +51,100 @@ public class CobolKeywords {
             "UNSTRING","UNTIL","UP","UPON","USAGE","USE","USING","VALUE","VALUES","VARYING","WHEN","WHEN-COMPILED",
             "WITH","WORDS","WORKING-STORAGE","WRITE","WRITE-ONLY","ZERO","ZEROES","ZEROS"
     );
+
+    // 关键字编号：保留字按字母顺序的下标，不是保留字时为 -1。
+    // 完美哈希（hash and displace）：第一次哈希选桶，每个桶有一个位移量，
+    // 使桶内各词的第二次哈希落在 TABLE 中互不冲突的位置；查找时只算一次哈希、比较一次字符
+    private static final String[] WORDS = RESERVED_WORDS.stream().sorted().toArray(String[]::new);
+    private static final int BUCKETS = Integer.highestOneBit(WORDS.length);
+    private static final int[] DISPLACE = new int[BUCKETS];
+    private static final short[] TABLE = new short[Integer.highestOneBit(WORDS.length) << 2];
+    private static final int MAX_LENGTH;
+
+    static {
+        List<List<Integer>> buckets = new ArrayList<>();
+        for (int b = 0; b < BUCKETS; b++) buckets.add(new ArrayList<>());
+        int maxLength = 0;
+        for (int id = 0; id < WORDS.length; id++) {
+            buckets.get(bucket(hash(WORDS[id], 0, WORDS[id].length()))).add(id);
+            maxLength = Math.max(maxLength, WORDS[id].length());
+        }
+        MAX_LENGTH = maxLength;
+        Arrays.fill(TABLE, (short) -1);
+        Integer[] order = new Integer[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) order[b] = b;
+        Arrays.sort(order, (x, y) -> buckets.get(y).size() - buckets.get(x).size());
+        int[] slots = new int[WORDS.length];
+        for (int b : order) {
+            List<Integer> ids = buckets.get(b);
+            if (ids.isEmpty()) break;
+            for (int d = 1; ; d++) {
+                int n = 0;
+                for (int id : ids) {
+                    int slot = slot(hash(WORDS[id], 0, WORDS[id].length()), d);
+                    boolean taken = TABLE[slot] >= 0;
+                    for (int k = 0; k < n && !taken; k++) taken = slots[k] == slot;
+                    if (taken) break;
+                    slots[n++] = slot;
+                }
+                if (n < ids.size()) continue;
+                for (int k = 0; k < n; k++) TABLE[slots[k]] = (short) (int) ids.get(k);
+                DISPLACE[b] = d;
+                break;
+            }
+        }
+    }
+
+    // 编译器用到的关键字
+    static final int ACCEPT = id("ACCEPT"), ADD = id("ADD"), AFTER = id("AFTER"), BY = id("BY"), CALL = id("CALL"),
+            COMPUTE = id("COMPUTE"), CONTINUE = id("CONTINUE"), COPY = id("COPY"), DATA = id("DATA"),
+            DISPLAY = id("DISPLAY"), DIVIDE = id("DIVIDE"), DIVISION = id("DIVISION"), ELSE = id("ELSE"),
+            END_EVALUATE = id("END-EVALUATE"), END_IF = id("END-IF"), END_PERFORM = id("END-PERFORM"),
+            EVALUATE = id("EVALUATE"), EXIT = id("EXIT"), FROM = id("FROM"), GO = id("GO"), GOBACK = id("GOBACK"),
+            IF = id("IF"), IN = id("IN"), INITIALIZE = id("INITIALIZE"), INSPECT = id("INSPECT"), INTO = id("INTO"), IS = id("IS"),
+            MOVE = id("MOVE"), MULTIPLY = id("MULTIPLY"), OF = id("OF"), OFF = id("OFF"), OTHER = id("OTHER"),
+            PERFORM = id("PERFORM"), PIC = id("PIC"), PICTURE = id("PICTURE"), PROCEDURE = id("PROCEDURE"),
+            REPLACE = id("REPLACE"), REPLACING = id("REPLACING"), RUN = id("RUN"), SECTION = id("SECTION"),
+            SET = id("SET"), STOP = id("STOP"), STRING = id("STRING"), SUBTRACT = id("SUBTRACT"), TEST = id("TEST"),
+            THROUGH = id("THROUGH"), THRU = id("THRU"), TIMES = id("TIMES"), TO = id("TO"), UNSTRING = id("UNSTRING"),
+            UNTIL = id("UNTIL"), USING = id("USING"), VARYING = id("VARYING"), WHEN = id("WHEN"), WITH = id("WITH"),
+            WORKING_STORAGE = id("WORKING-STORAGE");
+
+    static int id(String word) { return id(word, 0, word.length(), hash(word, 0, word.length())); }
+
+    /** s[start, end) 的关键字编号（不区分大小写），hash 为 hash(s, start, end)；不是保留字时为 -1 */
+    static int id(CharSequence s, int start, int end, int hash) {
+        if (end - start > MAX_LENGTH) return -1;
+        int id = TABLE[slot(hash, DISPLACE[bucket(hash)])];
+        if (id < 0) return -1;
+        String w = WORDS[id];
+        if (w.length() != end - start) return -1;
+        for (int i = 0; i < w.length(); i++) {
+            if (upper(s.charAt(start + i)) != w.charAt(i)) return -1;
+        }
+        return id;
+    }
+
+    static String word(int id) { return WORDS[id]; }
+
+    /** 不区分大小写的字符串哈希，词法分析时边扫描边计算：h = h * 31 + upper(c) */
+    static int hash(CharSequence s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) h = h * 31 + upper(s.charAt(i));
+        return h;
+    }
+
+    static char upper(char c) { return c >= 'a' && c <= 'z' ? (char) (c - 32) : c; }
+
+    private static int bucket(int hash) { return mix(hash) & (BUCKETS - 1); }
+
+    private static int slot(int hash, int d) { return mix(hash + d * 0x9E3779B9) & (TABLE.length - 1); }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
 }
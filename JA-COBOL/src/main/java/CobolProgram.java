@@ -0,0 +1,85 @@
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译好的程序
+ * 段落与指令序列、各槽位的变量名与字段描述、记录长度与初始化操作，编译完成后不再修改，
+ * 同一个程序可以在多个线程上同时运行，每次运行一个 CobolRun。
+ * 自特化节点（Stmt.Move / Arith / Condition）本身不保存状态，特化状态按节点编号放在 CobolRun 中
+ */
+public final class CobolProgram implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final Stmt[] procedure;                 // 第一个段落之前的语句
+    final Map<String, Stmt[]> paragraphs;   // 按源码顺序
+    final Code code;
+    final String[] names;                   // 按槽位
+    final CobolInterpreter.VarSpec[] specs; // 按槽位，未声明的变量为 null
+    final int recordLength;
+    final Storage.Init[] init;
+    final int sites;                        // 自特化节点的个数
+
+    // 字节码版本在第一次需要时编译一次，不写入编译缓存
+    private transient volatile BytecodeTier.Program bytecode;
+    private transient volatile boolean bytecodeTried;
+    private transient volatile String bytecodeFailure;
+
+    CobolProgram(Stmt[] procedure, Map<String, Stmt[]> paragraphs, Code code, String[] names,
+                 CobolInterpreter.VarSpec[] specs, int recordLength, Storage.Init[] init, int sites) {
+        this.procedure = procedure;
+        this.paragraphs = Collections.unmodifiableMap(new LinkedHashMap<>(paragraphs));
+        this.code = code;
+        this.names = names;
+        this.specs = specs;
+        this.recordLength = recordLength;
+        this.init = init;
+        this.sites = sites;
+    }
+
+    public static CobolProgram compile(List<String> lines) {
+        return compile(lines, false);
+    }
+
+    /** fixedFormat：源码为固定格式，1-6 列与 73 列之后不是程序正文，7 列是指示符 */
+    public static CobolProgram compile(List<String> lines, boolean fixedFormat) {
+        return compile(lines, fixedFormat, null);
+    }
+
+    /** copybooks：COPY 查找成员的库，为 null 时程序不能 COPY */
+    public static CobolProgram compile(List<String> lines, boolean fixedFormat, CopybookLibrary copybooks) {
+        return compile(String.join("\n", lines), fixedFormat, copybooks);
+    }
+
+    /** 整个源码为一个字符序列（各行以 \n 分隔），可以是内存映射的文件（见 MappedSource） */
+    public static CobolProgram compile(CharSequence source, boolean fixedFormat, CopybookLibrary copybooks) {
+        CobolCompiler compiler = new CobolCompiler();
+        compiler.copybooks = copybooks;
+        compiler.compile(source, fixedFormat);
+        return compiler.program();
+    }
+
+    /** 字节码版本，不能编译（没有 javac 等）时为 null；原因在第一次尝试时记入日志，并由 bytecodeFailure 返回 */
+    BytecodeTier.Program bytecode() {
+        if (!bytecodeTried) {
+            synchronized (this) {
+                if (!bytecodeTried) {
+                    try {
+                        bytecode = BytecodeTier.compile(this);
+                    } catch (BytecodeTier.Unavailable e) {
+                        bytecodeFailure = e.getMessage();
+                        System.getLogger(BytecodeTier.class.getName()).log(System.Logger.Level.WARNING,
+                                "bytecode tier unavailable, running the interpreter: " + e.getMessage());
+                    }
+                    bytecodeTried = true;
+                }
+            }
+        }
+        return bytecode;
+    }
+
+    /** 不能编译成字节码的原因，还没有尝试或编译成功时为 null */
+    String bytecodeFailure() { return bytecodeFailure; }
+}
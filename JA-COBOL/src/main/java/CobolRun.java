@@ -0,0 +1,284 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Scanner;
+import java.util.function.Consumer;
+
+/**
+ * 一次运行的状态
+ * 只有 WORKING-STORAGE 记录、未声明变量的值、自特化节点的特化状态、DISPLAY 的输出与 ACCEPT 的输入；
+ * 程序本身（CobolProgram）不可变，同一个程序可以在多个线程上各用一个 CobolRun 同时运行，不需要加锁。
+ * PERFORM 栈与循环寄存器是 execute 的局部变量。一个 CobolRun 只运行一次
+ */
+public final class CobolRun {
+    private final CobolProgram program;
+    private final Storage storage;
+    private final Object[] values;      // 未声明变量的值，未赋值时为 null
+    private final byte[] states;        // 自特化节点的状态，按节点编号（见 Stmt.Move）
+    private final List<String> output;              // 没有指定输出接收者时收集 DISPLAY 的各行
+    private final Consumer<? super String> sink;
+    private final Iterator<String> input;
+
+    // 多个运行共用标准输入，按行加锁读取
+    private static final Scanner STDIN = new Scanner(System.in);
+
+    // PERFORM 栈的深度上限：超过时视为没有终止条件的递归 PERFORM
+    private static final int MAX_PERFORM_DEPTH = 1 << 20;
+
+    /** offHeap：记录放在堆外内存；input：ACCEPT 读取的各行，为 null 时读标准输入。DISPLAY 的各行由 run() 返回 */
+    public CobolRun(CobolProgram program, boolean offHeap, Iterator<String> input) {
+        this(program, offHeap, input, new ArrayList<>());
+    }
+
+    /** DISPLAY 的每一行直接交给 sink，不在内存中保留；run() 返回空列表 */
+    public CobolRun(CobolProgram program, boolean offHeap, Iterator<String> input, Consumer<? super String> sink) {
+        this(program, offHeap, input, null, sink);
+    }
+
+    private CobolRun(CobolProgram program, boolean offHeap, Iterator<String> input, List<String> output) {
+        this(program, offHeap, input, output, output::add);
+    }
+
+    private CobolRun(CobolProgram program, boolean offHeap, Iterator<String> input, List<String> output,
+                     Consumer<? super String> sink) {
+        this.program = program;
+        this.output = output;
+        this.sink = sink;
+        this.storage = Storage.allocate(program.recordLength, offHeap);
+        this.storage.init(program.init);
+        this.values = new Object[program.specs.length];
+        this.states = new byte[program.sites];
+        this.input = input;
+    }
+
+    /** 运行到 STOP RUN 或程序末尾，返回 DISPLAY 的输出（有输出接收者时为空）；运行时错误输出一行 ERROR。结束时释放记录 */
+    public List<String> run(boolean bytecode) {
+        try {
+            BytecodeTier.Program compiled = bytecode ? program.bytecode() : null;
+            if (compiled != null) compiled.run(this);
+            else execute(program.code);
+        } catch (CobolInterpreter.CobolError e) {
+            sink.accept("ERROR: " + e.getMessage());
+        } finally {
+            storage.close();
+        }
+        return output != null ? output : List.of();
+    }
+
+    /**
+     * 指令循环：按程序计数器取操作码分派。
+     * PERFORM 把 (返回前的 PARA_END, 返回点) 压栈后跳到段落入口；执行到栈顶记录的 PARA_END 时出栈返回，
+     * 其它 PARA_END 直接贯穿到下一个段落
+     */
+    void execute(Code code) {
+        byte[] op = code.op;
+        Object[] arg = code.arg;
+        int[] jump = code.jump;
+        int[] exits = new int[16], returns = new int[16];
+        int sp = 0;
+        long[] regs = new long[code.registers];
+        int pc = 0;
+        while (pc < op.length) {
+            Object a = arg[pc];
+            switch (op[pc]) {
+                case Code.MOVE -> ((Stmt.Move) a).exec(this);
+                case Code.MOVE_BYTES -> ((Stmt.MoveBytes) a).exec(this);
+                case Code.MOVE_FIELD -> ((Stmt.MoveField) a).exec(this);
+                case Code.MOVE_NUMBER -> ((Stmt.MoveNumber) a).exec(this);
+                case Code.MOVE_PACKED -> ((Stmt.MovePacked) a).exec(this);
+                case Code.COMPUTE -> ((Stmt.Compute) a).exec(this);
+                case Code.ARITH -> ((Stmt.Arith) a).exec(this);
+                case Code.NUM_ARITH -> ((Stmt.NumArith) a).exec(this);
+                case Code.PACKED_ARITH -> ((Stmt.PackedArith) a).exec(this);
+                case Code.BINARY_ARITH -> ((Stmt.BinaryArith) a).exec(this);
+                case Code.DISPLAY -> ((Stmt.Display) a).exec(this);
+                case Code.ACCEPT -> ((Stmt.Accept) a).exec(this);
+                case Code.JUMP -> {
+                    pc = jump[pc];
+                    continue;
+                }
+                case Code.JUMP_FALSE -> {
+                    if (!((Predicate) a).test(this)) {
+                        pc = jump[pc];
+                        continue;
+                    }
+                }
+                case Code.JUMP_TRUE -> {
+                    if (((Predicate) a).test(this)) {
+                        pc = jump[pc];
+                        continue;
+                    }
+                }
+                case Code.TIMES_INIT -> {
+                    Code.Loop loop = (Code.Loop) a;
+                    regs[loop.reg] = Code.Loop.eval(loop.times, this);
+                }
+                case Code.TIMES_TEST -> {
+                    int r = ((Code.Loop) a).reg;
+                    if (regs[r] <= 0) {
+                        pc = jump[pc];
+                        continue;
+                    }
+                    regs[r]--;
+                }
+                case Code.VARY_SET -> ((Code.Loop) a).set(this, regs);
+                case Code.VARY_STEP -> ((Code.Loop) a).step(this, regs);
+                case Code.VARY_TEST -> {
+                    if (((Code.Loop) a).done(this, regs)) {
+                        pc = jump[pc];
+                        continue;
+                    }
+                }
+                case Code.EVALUATE -> {
+                    pc = code.table[pc][((Stmt.Evaluate) a).select(this)];
+                    continue;
+                }
+                case Code.PERFORM -> {
+                    if (sp == exits.length) {
+                        if (sp >= MAX_PERFORM_DEPTH) throw new CobolInterpreter.CobolError("PERFORM NESTED TOO DEEPLY");
+                        exits = Arrays.copyOf(exits, sp * 2);
+                        returns = Arrays.copyOf(returns, sp * 2);
+                    }
+                    exits[sp] = code.exit[pc];
+                    returns[sp++] = pc + 1;
+                    pc = jump[pc];
+                    continue;
+                }
+                case Code.PARA_END -> {
+                    if (sp > 0 && exits[sp - 1] == pc) {
+                        pc = returns[--sp];
+                        continue;
+                    }
+                }
+                case Code.STOP -> {
+                    return;
+                }
+                default -> throw new IllegalStateException("opcode " + op[pc]);
+            }
+            pc++;
+        }
+    }
+
+    // === 供 Stmt 节点与字节码层使用的运行时操作 ===
+    void display(String s) { sink.accept(s); }
+
+    /** PERFORM 的 TIMES / FROM / BY 表达式除以 0：循环的次数或初值无从确定，运行以 ERROR 结束 */
+    static CobolInterpreter.CobolError loopDivideByZero() {
+        return new CobolInterpreter.CobolError("DIVIDE BY ZERO IN PERFORM");
+    }
+
+    Storage storage() { return storage; }
+
+    int state(int site) { return states[site]; }
+
+    void setState(int site, int state) { states[site] = (byte) state; }
+
+    /** PIC 9 字段的数值 */
+    long num(Stmt.Ref ref) { return num(ref.spec, ref.offset(this)); }
+
+    long num(Stmt.Ref ref, int offset) { return num(ref.spec, offset); }
+
+    private long num(CobolInterpreter.VarSpec vs, int offset) {
+        return switch (vs.usage) {
+            case CobolInterpreter.VarSpec.PACKED -> Packed.decode(storage, offset, vs.length);
+            case CobolInterpreter.VarSpec.BINARY, CobolInterpreter.VarSpec.NATIVE ->
+                    storage.getBinary(offset, vs.length, vs.usage == CobolInterpreter.VarSpec.BINARY) & vs.mask;
+            default -> storage.getZoned(offset, vs.length);
+        };
+    }
+
+    void setNum(Stmt.Ref ref, long value) { setNum(ref, ref.offset(this), value); }
+
+    void setNum(Stmt.Ref ref, int offset, long value) {
+        CobolInterpreter.VarSpec vs = ref.spec;
+        switch (vs.usage) {
+            case CobolInterpreter.VarSpec.PACKED -> Packed.put(storage, offset, vs.length, vs.digits, vs.signed, value);
+            case CobolInterpreter.VarSpec.BINARY, CobolInterpreter.VarSpec.NATIVE ->
+                    storage.putBinary(offset, vs.length, vs.usage == CobolInterpreter.VarSpec.BINARY, vs.truncate(value));
+            default -> storage.putZoned(offset, vs.length, vs.signed, value);
+        }
+    }
+
+    /** 未声明变量的值，未赋值时为 null */
+    Object slot(int slot) { return values[slot]; }
+
+    void setSlot(int slot, Object value) { values[slot] = value; }
+
+    /** 变量当前值（数值字段装箱为 Long，其它字段为字符串），未赋值时返回 null */
+    Object value(Stmt.Ref ref) {
+        CobolInterpreter.VarSpec vs = ref.spec;
+        if (vs == null) return values[ref.slot];
+        return vs.isNumeric ? (Object) num(ref) : storage.getString(ref.offset(this), vs.length);
+    }
+
+    long numericValue(Stmt.Ref ref) {
+        if (ref.isNumeric()) return num(ref);
+        Object v = ref.spec == null ? values[ref.slot] : null;
+        return v instanceof Long ? (long) v : 0;
+    }
+
+    void storeNumber(Stmt.Ref ref, long value) {
+        CobolInterpreter.VarSpec vs = ref.spec;
+        if (vs == null) values[ref.slot] = value;
+        else if (vs.isNumeric) setNum(ref, value);
+        else storage.putString(ref.offset(this), vs.length, Long.toString(value));
+    }
+
+    String displayValue(Stmt.Ref ref) {
+        CobolInterpreter.VarSpec vs = ref.spec;
+        if (vs != null) return vs.isNumeric ? Long.toString(num(ref)) : storage.getString(ref.offset(this), vs.length);
+        Object v = values[ref.slot];
+        return v == null ? program.names[ref.slot] : String.valueOf(v);
+    }
+
+    void move(Stmt.Ref ref, Object toValue) {
+        CobolInterpreter.VarSpec targetSpec = ref.spec;
+        if (targetSpec != null) {
+            if (targetSpec.isNumeric) {
+                long n;
+                try { n = Long.parseLong(String.valueOf(toValue).trim()); }
+                catch (Exception e) { n = 0; }
+                setNum(ref, n);
+            } else {
+                storage.putString(ref.offset(this), targetSpec.length, String.valueOf(toValue == null ? "" : toValue));
+            }
+        } else values[ref.slot] = toValue;
+    }
+
+    /** 下一行输入：指定了输入时从中读取，否则读控制台或标准输入；没有输入时为空串 */
+    String readInput() {
+        if (input != null) return input.hasNext() ? input.next() : "";
+        if (System.console() != null) return System.console().readLine();
+        synchronized (STDIN) {
+            return STDIN.hasNextLine() ? STDIN.nextLine() : "";
+        }
+    }
+
+    void accept(Stmt.Ref ref, String input) {
+        CobolInterpreter.VarSpec vs = ref.spec;
+        if (vs == null) values[ref.slot] = input.matches("-?\\d{1,18}") ? (Object) Long.parseLong(input) : input;
+        else if (!vs.isNumeric) storage.putString(ref.offset(this), vs.length, input);
+        else setNum(ref, input.matches("-?\\d{1,18}") ? Long.parseLong(input) : 0);
+    }
+
+    /** 表达式中的变量值：数值字段直接取值，其它按文本转换成整数，不是数字时为 0 */
+    long operandValue(Stmt.Ref ref) {
+        CobolInterpreter.VarSpec vs = ref.spec;
+        if (vs != null && vs.isNumeric) return num(ref);
+        Object v = vs == null ? values[ref.slot] : storage.getString(ref.offset(this), vs.length);
+        if (v instanceof Long) return (long) v;
+        if (v == null) return 0;
+        try { return Long.parseLong(String.valueOf(v).trim()); } catch (NumberFormatException e) { return 0; }
+    }
+
+    // === 条件 ===
+    boolean evalCondition(Stmt.Condition c) {
+        if (c.packed) {
+            Stmt.Ref l = c.left.ref, r = c.right.ref;
+            return CobolInterpreter.compare(c.op, Packed.compare(storage, l.offset(this), l.length(), r.offset(this), r.length()), 0);
+        }
+        if (c.numeric) return CobolInterpreter.compare(c.op, c.left.number(this), c.right.number(this));
+        return c.compareValues(this);
+    }
+}
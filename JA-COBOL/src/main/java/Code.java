@@ -0,0 +1,315 @@
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 指令序列
+ * 整个过程部分按源码顺序展开成一条指令数组：op[pc] 是操作码，arg[pc] 是操作数（语句节点或条件），
+ * jump[pc] 是跳转目标。IF / EVALUATE / PERFORM ... UNTIL 变成条件跳转（AND / OR / NOT 展开成
+ * 短路的跳转序列，每条条件跳转只判断一个简单条件），GO TO 是无条件跳转，
+ * 段落之间顺序贯穿。每个段落末尾有一条 PARA_END，PERFORM 把返回点压入执行循环的 PERFORM 栈，
+ * 执行到栈顶记录的 PARA_END 时返回，所以 PERFORM / GO TO 都不占用 Java 栈。
+ * PERFORM 的 TIMES / UNTIL / VARYING 展开成计数循环，计数器与寄存器模式的 VARYING 变量
+ * 保存在执行循环的 long 寄存器中（见 Loop）。
+ * 由 CobolRun.execute 的 switch 循环按程序计数器分派，每个动词的分派代价相同
+ */
+final class Code implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // 操作码
+    static final byte MOVE = 0, MOVE_BYTES = 1, MOVE_FIELD = 2, MOVE_NUMBER = 3, MOVE_PACKED = 4,
+            COMPUTE = 5, ARITH = 6, NUM_ARITH = 7, PACKED_ARITH = 8, BINARY_ARITH = 9,
+            DISPLAY = 10, ACCEPT = 11,
+            JUMP = 12, JUMP_FALSE = 13, EVALUATE = 14, PERFORM = 15, PARA_END = 16, STOP = 17,
+            JUMP_TRUE = 18, TIMES_INIT = 19, TIMES_TEST = 20, VARY_SET = 21, VARY_STEP = 22, VARY_TEST = 23;
+
+    final byte[] op;
+    final Object[] arg;
+    final int[] jump;       // 跳转目标；PERFORM 为第一个段落的入口
+    final int[] exit;       // PERFORM 返回前的位置：最后一个段落（THRU）的 PARA_END
+    final int[][] table;    // EVALUATE 各 WHEN 分支的入口，最后一项是 END-EVALUATE 之后
+    final int registers;    // 循环寄存器个数
+
+    private Code(byte[] op, Object[] arg, int[] jump, int[] exit, int[][] table, int registers) {
+        this.op = op;
+        this.arg = arg;
+        this.jump = jump;
+        this.exit = exit;
+        this.table = table;
+        this.registers = registers;
+    }
+
+    /**
+     * 循环指令的操作数：TIMES 的次数或 VARYING 的一层，reg 是它使用的寄存器。
+     * 寄存器模式的 VARYING 变量只写回字段，判断与递增都用寄存器；其它情况每次从字段读出
+     */
+    static final class Loop implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final int reg;
+        final Expr times;
+        final Stmt.Varying varying;
+        private final boolean registerTest;
+        Loop(int reg, Expr times, Stmt.Varying varying) {
+            this.reg = reg;
+            this.times = times;
+            this.varying = varying;
+            this.registerTest = varying != null && varying.registerTest();
+        }
+
+        void set(CobolRun rt, long[] regs) {
+            store(rt, regs, eval(varying.from, rt));
+        }
+
+        void step(CobolRun rt, long[] regs) {
+            long by = eval(varying.by, rt);
+            store(rt, regs, (varying.register ? regs[reg] : rt.numericValue(varying.var)) + by);
+        }
+
+        /** 循环操作数的值，除以 0 时报错（COMPUTE 可以跳过语句，循环不行） */
+        static long eval(Expr e, CobolRun rt) {
+            try { return e.eval(rt); }
+            catch (ArithmeticException x) { throw CobolRun.loopDivideByZero(); }
+        }
+
+        private void store(CobolRun rt, long[] regs, long value) {
+            Stmt.Ref var = varying.var;
+            if (varying.register) {
+                regs[reg] = var.spec.stored(value);
+                rt.setNum(var, value);
+            } else {
+                rt.storeNumber(var, value);
+            }
+        }
+
+        /** 本层的 UNTIL 条件是否成立 */
+        boolean done(CobolRun rt, long[] regs) {
+            Predicate p = varying.until;
+            if (p == null) return false;
+            if (registerTest) {
+                Stmt.Condition c = (Stmt.Condition) p;
+                return CobolInterpreter.compare(c.op, regs[reg], c.right.number(rt));
+            }
+            return p.test(rt);
+        }
+    }
+
+    /** 依次展开第一个段落之前的语句与各段落；PERFORM / GO TO 的目标段落不存在时语句不起作用 */
+    static Code link(Stmt[] procedure, Map<String, Stmt[]> paragraphs) {
+        Builder b = new Builder(paragraphs);
+        b.block(procedure);
+        for (Map.Entry<String, Stmt[]> e : paragraphs.entrySet()) {
+            b.entries.put(e.getKey(), b.pc());
+            b.block(e.getValue());
+            b.ends.put(e.getKey(), b.emit(PARA_END, null));
+        }
+        return b.finish();
+    }
+
+    private static final class Builder {
+        private final Map<String, Stmt[]> paragraphs;
+        private final List<Byte> ops = new ArrayList<>();
+        private final List<Object> args = new ArrayList<>();
+        private final List<Integer> jumps = new ArrayList<>();
+        private final Map<Integer, int[]> tables = new HashMap<>();
+        private final Map<Integer, Stmt> calls = new HashMap<>();     // PERFORM / GO TO 的位置，展开后再填目标
+        private int registers;
+        final Map<String, Integer> entries = new HashMap<>();
+        final Map<String, Integer> ends = new HashMap<>();
+
+        Builder(Map<String, Stmt[]> paragraphs) { this.paragraphs = paragraphs; }
+
+        int emit(byte op, Object arg) {
+            ops.add(op);
+            args.add(arg);
+            jumps.add(-1);
+            return ops.size() - 1;
+        }
+
+        int pc() { return ops.size(); }
+
+        void block(Stmt[] block) {
+            for (Stmt s : block) stmt(s);
+        }
+
+        private void stmt(Stmt s) {
+            if (s instanceof Stmt.If f) {
+                List<Integer> test = branch(f.condition, false);
+                block(f.thenBlock);
+                int skip = emit(JUMP, null);
+                patch(test, pc());
+                block(f.elseBlock);
+                jumps.set(skip, pc());
+            } else if (s instanceof Stmt.Evaluate e) {
+                int select = emit(EVALUATE, e);
+                int[] entries = new int[e.arms.length + 1];
+                List<Integer> exits = new ArrayList<>();
+                for (int i = 0; i < e.arms.length; i++) {
+                    // 连续的 WHEN 共用语句
+                    if (i > 0 && e.arms[i].body == e.arms[i - 1].body) {
+                        entries[i] = entries[i - 1];
+                        continue;
+                    }
+                    entries[i] = pc();
+                    block(e.arms[i].body);
+                    exits.add(emit(JUMP, null));
+                }
+                entries[e.arms.length] = pc();
+                for (int x : exits) jumps.set(x, pc());
+                tables.put(select, entries);
+            } else if (s instanceof Stmt.Perform p) {
+                if (p.label == null || paragraphs.containsKey(p.label)) perform(p);
+            } else if (s instanceof Stmt.Goto g) {
+                if (!paragraphs.containsKey(g.label)) return;
+                calls.put(emit(JUMP, null), g);
+            } else if (s instanceof Stmt.StopRun) {
+                emit(STOP, null);
+            } else if (!(s instanceof Stmt.Continue)) {
+                emit(opcode(s), s);
+            }
+        }
+
+        /** 循环体：PERFORM 段落范围或内联语句 */
+        private void body(Stmt.Perform p) {
+            if (p.label != null) calls.put(emit(PERFORM, null), p);
+            else block(p.body);
+        }
+
+        private void perform(Stmt.Perform p) {
+            if (p.times != null) {
+                // 次数只在开始时求值一次
+                Loop loop = new Loop(registers++, p.times, null);
+                emit(TIMES_INIT, loop);
+                int test = emit(TIMES_TEST, loop);
+                body(p);
+                jumps.set(emit(JUMP, null), test);
+                jumps.set(test, pc());
+            } else if (p.varying.length > 0) {
+                varying(p);
+            } else if (p.loop && p.testAfter) {
+                int top = pc();
+                body(p);
+                patch(branch(p.until, false), top);
+            } else if (p.loop) {
+                int top = pc();
+                List<Integer> test = branch(p.until, true);
+                body(p);
+                jumps.set(emit(JUMP, null), top);
+                patch(test, pc());
+            } else {
+                body(p);
+            }
+        }
+
+        /**
+         * VARYING A ... AFTER B ...：先设置各层初值，外层条件成立时结束；
+         * 内层条件成立时外层递增、内层回到初值，再判断外层
+         */
+        private void varying(Stmt.Perform p) {
+            int n = p.varying.length;
+            Loop[] loops = new Loop[n];
+            for (int i = 0; i < n; i++) {
+                loops[i] = new Loop(registers++, null, p.varying[i]);
+                emit(VARY_SET, loops[i]);
+            }
+            int[] tops = new int[n], tests = new int[n];
+            for (int i = 0; i < n; i++) {
+                tops[i] = pc();
+                tests[i] = emit(VARY_TEST, loops[i]);
+            }
+            body(p);
+            emit(VARY_STEP, loops[n - 1]);
+            jumps.set(emit(JUMP, null), tops[n - 1]);
+            for (int i = n - 1; i > 0; i--) {
+                jumps.set(tests[i], pc());
+                emit(VARY_STEP, loops[i - 1]);
+                emit(VARY_SET, loops[i]);
+                jumps.set(emit(JUMP, null), tops[i - 1]);
+            }
+            jumps.set(tests[0], pc());
+        }
+
+        /** 条件值为 when 时跳转，返回目标待填的跳转指令；条件为 null 时恒为假 */
+        private List<Integer> branch(Predicate p, boolean when) {
+            List<Integer> out = new ArrayList<>();
+            if (p == null) {
+                if (!when) out.add(emit(JUMP, null));
+            } else {
+                branch(p, when, out);
+            }
+            return out;
+        }
+
+        private void branch(Predicate p, boolean when, List<Integer> out) {
+            if (p instanceof Predicate.Not n) {
+                branch(n.operand, !when, out);
+            } else if (p instanceof Predicate.And a) {
+                junction(a.left, a.right, false, when, out);
+            } else if (p instanceof Predicate.Or o) {
+                junction(o.left, o.right, true, when, out);
+            } else {
+                out.add(emit(when ? JUMP_TRUE : JUMP_FALSE, p));
+            }
+        }
+
+        /** l AND r（or 为假）或 l OR r：左边已经决定结果时不再判断右边 */
+        private void junction(Predicate l, Predicate r, boolean or, boolean when, List<Integer> out) {
+            if (or == when) {
+                // AND 为假 / OR 为真：任一边满足即跳转
+                branch(l, when, out);
+                branch(r, when, out);
+            } else {
+                List<Integer> skip = new ArrayList<>();
+                branch(l, !when, skip);
+                branch(r, when, out);
+                patch(skip, pc());
+            }
+        }
+
+        private void patch(List<Integer> at, int target) {
+            for (int pc : at) jumps.set(pc, target);
+        }
+
+        private static byte opcode(Stmt s) {
+            if (s instanceof Stmt.Move) return MOVE;
+            if (s instanceof Stmt.MoveBytes) return MOVE_BYTES;
+            if (s instanceof Stmt.MoveField) return MOVE_FIELD;
+            if (s instanceof Stmt.MoveNumber) return MOVE_NUMBER;
+            if (s instanceof Stmt.MovePacked) return MOVE_PACKED;
+            if (s instanceof Stmt.Compute) return COMPUTE;
+            if (s instanceof Stmt.Arith) return ARITH;
+            if (s instanceof Stmt.NumArith) return NUM_ARITH;
+            if (s instanceof Stmt.PackedArith) return PACKED_ARITH;
+            if (s instanceof Stmt.BinaryArith) return BINARY_ARITH;
+            if (s instanceof Stmt.Display) return DISPLAY;
+            if (s instanceof Stmt.Accept) return ACCEPT;
+            throw new IllegalArgumentException(s.getClass().getName());
+        }
+
+        Code finish() {
+            int n = ops.size();
+            byte[] op = new byte[n];
+            int[] jump = new int[n];
+            int[] exit = new int[n];
+            int[][] table = new int[n][];
+            for (int i = 0; i < n; i++) {
+                op[i] = ops.get(i);
+                jump[i] = jumps.get(i);
+                table[i] = tables.get(i);
+            }
+            for (Map.Entry<Integer, Stmt> e : calls.entrySet()) {
+                int pc = e.getKey();
+                if (e.getValue() instanceof Stmt.Perform p) {
+                    jump[pc] = entries.get(p.label);
+                    // THRU 的段落不存在或在起始段落之前时只执行起始段落
+                    Integer last = p.thru != null ? ends.get(p.thru) : null;
+                    exit[pc] = last != null && last >= jump[pc] ? last : ends.get(p.label);
+                } else {
+                    jump[pc] = entries.get(((Stmt.Goto) e.getValue()).label);
+                }
+            }
+            return new Code(op, args.toArray(), jump, exit, table, registers);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * COPY 库
+ * 在配置的目录中查找 COPY 引用的成员（成员名本身或加 .cpy / .cbl / .cob 扩展名）。
+ * 每个成员只读入、分析一次，记号流按 (路径, 修改时间, 大小) 缓存，固定格式与自由格式各缓存一份；同一个库可以在多个编译、多个线程间共用。
+ * COPY ... REPLACING 与 REPLACE 在记号上替换：缓存的记号不变，展开时把匹配的记号序列换成替换文本的记号；
+ * 与 IBM 编译器相同，形如 ==:TAG:== 的伪文本也替换名字中的一部分（:PFX:-ID -> WS-ID）
+ */
+public final class CopybookLibrary {
+    private static final String[] EXTENSIONS = {"", ".cpy", ".CPY", ".cbl", ".CBL", ".cob", ".COB"};
+    private static final int MAX_DEPTH = 16;    // COPY 嵌套层数上限，超过时视为循环引用
+
+    private final List<Path> dirs;
+    // 同一个成员被固定格式与自由格式的程序 COPY 时分析结果不同，两种格式分开缓存，交替使用时不会互相挤掉
+    private final Map<Path, Member> freeMembers = new ConcurrentHashMap<>();
+    private final Map<Path, Member> fixedMembers = new ConcurrentHashMap<>();
+
+    public CopybookLibrary(List<Path> dirs) { this.dirs = List.copyOf(dirs); }
+
+    List<Path> dirs() { return dirs; }
+
+    /** 一个成员：记号流与内容的 SHA-256（编译缓存用它判断成员是否改过） */
+    static final class Member {
+        final Path path;
+        final long modified;
+        final long size;
+        final boolean fixed;
+        final Lexer tokens;
+        final byte[] digest;
+        Member(Path path, long modified, long size, boolean fixed, Lexer tokens, byte[] digest) {
+            this.path = path;
+            this.modified = modified;
+            this.size = size;
+            this.fixed = fixed;
+            this.tokens = tokens;
+            this.digest = digest;
+        }
+    }
+
+    /** 一组替换：匹配 from 的记号序列换成 by 的记号 */
+    private static final class Replacing {
+        final Lexer from;
+        final Lexer by;
+        final String tag;       // from 是单个 :TAG: 时为它的文本（大写），否则为 null
+        Replacing(Lexer from, Lexer by) {
+            this.from = from;
+            this.by = by;
+            String text = from.count() == 1 ? from.text(0) : "";
+            this.tag = text.length() > 2 && text.startsWith(":") && text.endsWith(":") ? text.toUpperCase() : null;
+        }
+
+        /** 记号中含有 :TAG: 时返回替换后的文本，否则返回 null */
+        String replaceTag(Lexer t, int i) {
+            if (tag == null || t.kind(i) == Lexer.STRING) return null;
+            String text = t.text(i);
+            int at = text.toUpperCase().indexOf(tag);
+            if (at < 0) return null;
+            String by = this.by.count() > 0 ? this.by.text(0, this.by.count()) : "";
+            return text.substring(0, at) + by + text.substring(at + tag.length());
+        }
+
+        boolean matches(Lexer t, int i, int to) {
+            int n = from.count();
+            if (i + n > to) return false;
+            for (int k = 0; k < n; k++) {
+                if (!t.sameText(i + k, from, k)) return false;
+            }
+            return true;
+        }
+    }
+
+    /** 记号流中有没有 COPY / REPLACE */
+    static boolean hasDirectives(Lexer t) {
+        for (int i = 0, n = t.count(); i < n; i++) {
+            int k = t.keyword(i);
+            if (k == CobolKeywords.COPY || k == CobolKeywords.REPLACE) return true;
+        }
+        return false;
+    }
+
+    /** 展开 COPY，再按 REPLACE 替换其后的记号；用到的成员加入 used */
+    Lexer expand(Lexer t, boolean fixed, List<Member> used) {
+        return replace(copy(t, fixed, used, 0));
+    }
+
+    /** 按目录顺序查找成员，命中缓存且文件没有改过时直接返回缓存的记号 */
+    Member member(String name, boolean fixed) {
+        for (Path dir : dirs) {
+            for (String candidate : new String[] {name, name.toLowerCase()}) {
+                for (String ext : EXTENSIONS) {
+                    Path path = dir.resolve(candidate + ext);
+                    if (!Files.isRegularFile(path)) continue;
+                    try {
+                        return load(path, fixed);
+                    } catch (IOException e) {
+                        throw new CobolInterpreter.CobolError("COPYBOOK NOT READABLE: " + name);
+                    }
+                }
+            }
+        }
+        throw new CobolInterpreter.CobolError("COPYBOOK NOT FOUND: " + name);
+    }
+
+    Member load(Path path, boolean fixed) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+        long modified = attrs.lastModifiedTime().toMillis(), size = attrs.size();
+        Map<Path, Member> members = fixed ? fixedMembers : freeMembers;
+        Member m = members.get(key);
+        if (m != null && m.modified == modified && m.size == size) return m;
+        // 两个线程同时读入同一个成员时结果相同，后写入的覆盖先写入的
+        byte[] bytes = Files.readAllBytes(key);
+        m = new Member(key, modified, size, fixed, Lexer.lex(new String(bytes, StandardCharsets.UTF_8), fixed), sha256(bytes));
+        members.put(key, m);
+        return m;
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // === COPY ===
+    /** COPY 名字 [OF/IN 库名] [REPLACING 操作数 BY 操作数 ...].，成员中的 COPY 递归展开 */
+    private Lexer copy(Lexer t, boolean fixed, List<Member> used, int depth) {
+        Lexer out = Lexer.concat();
+        int n = t.count(), run = 0, i = 0;
+        while (i < n) {
+            if (t.keyword(i) != CobolKeywords.COPY || i + 1 >= n) {
+                i++;
+                continue;
+            }
+            out.append(t, run, i);
+            String name = t.text(i + 1);
+            if (t.kind(i + 1) == Lexer.STRING) name = name.substring(1, name.length() - 1);
+            int k = i + 2;
+            if (k + 1 < n && (t.keyword(k) == CobolKeywords.OF || t.keyword(k) == CobolKeywords.IN)) k += 2;
+            List<Replacing> replacing = new ArrayList<>();
+            if (k < n && t.keyword(k) == CobolKeywords.REPLACING) k = replacing(t, k + 1, replacing);
+            while (k < n && t.kind(k) != Lexer.PERIOD) k++;
+            run = i = Math.min(k + 1, n);
+
+            if (depth >= MAX_DEPTH) throw new CobolInterpreter.CobolError("COPY NESTED TOO DEEPLY: " + name);
+            Member m = member(name, fixed);
+            used.add(m);
+            Lexer body = hasDirectives(m.tokens) ? copy(m.tokens, fixed, used, depth + 1) : m.tokens;
+            substitute(body, 0, body.count(), replacing, out);
+        }
+        out.append(t, run, n);
+        return out;
+    }
+
+    // === REPLACE ===
+    /** REPLACE 操作数 BY 操作数 ... . 对其后的记号生效，直到下一个 REPLACE；REPLACE OFF. 停止替换 */
+    private Lexer replace(Lexer t) {
+        Lexer out = Lexer.concat();
+        List<Replacing> active = List.of();
+        int n = t.count(), run = 0, i = 0;
+        while (i < n) {
+            if (t.keyword(i) != CobolKeywords.REPLACE) {
+                i++;
+                continue;
+            }
+            substitute(t, run, i, active, out);
+            List<Replacing> next = new ArrayList<>();
+            int k = i + 1;
+            if (k < n && t.keyword(k) == CobolKeywords.OFF) k++;
+            else k = replacing(t, k, next);
+            while (k < n && t.kind(k) != Lexer.PERIOD) k++;
+            active = next;
+            run = i = Math.min(k + 1, n);
+        }
+        substitute(t, run, n, active, out);
+        return out;
+    }
+
+    /** 读取 操作数 BY 操作数 ... 到句点或下一个不是操作数的位置，返回结束位置 */
+    private static int replacing(Lexer t, int k, List<Replacing> out) {
+        int n = t.count();
+        while (k < n && t.kind(k) != Lexer.PERIOD) {
+            int[] end = new int[1];
+            Lexer from = operand(t, k, end);
+            k = end[0];
+            if (k >= n || t.keyword(k) != CobolKeywords.BY) break;
+            Lexer by = operand(t, k + 1, end);
+            k = end[0];
+            if (from != null && by != null && from.count() > 0) out.add(new Replacing(from, by));
+        }
+        return k;
+    }
+
+    /** 伪文本 ==...== 或单个记号；end[0] 为操作数之后的位置 */
+    private static Lexer operand(Lexer t, int k, int[] end) {
+        int n = t.count();
+        if (k >= n) {
+            end[0] = n;
+            return null;
+        }
+        String first = t.text(k);
+        if (!first.startsWith("==")) {
+            end[0] = k + 1;
+            Lexer one = Lexer.concat();
+            one.append(t, k, k + 1);
+            return one;
+        }
+        int j = k;
+        if (first.length() < 4 || !first.endsWith("==")) {
+            j++;
+            while (j < n && !t.text(j).endsWith("==")) j++;
+        }
+        end[0] = Math.min(j + 1, n);
+        String text = t.text(k, end[0]);
+        text = text.length() >= 4 && text.endsWith("==") ? text.substring(2, text.length() - 2) : text.substring(2);
+        return Lexer.lex(text);
+    }
+
+    /** t 的记号 from..to-1 接到 out 后面，匹配 replacing 中某一组的记号序列换成替换记号 */
+    private static void substitute(Lexer t, int from, int to, List<Replacing> replacing, Lexer out) {
+        if (replacing.isEmpty()) {
+            out.append(t, from, to);
+            return;
+        }
+        int run = from;
+        for (int i = from; i < to; ) {
+            Replacing match = null;
+            String partial = null;
+            for (Replacing r : replacing) {
+                if (r.matches(t, i, to)) {
+                    match = r;
+                    break;
+                }
+                if ((partial = r.replaceTag(t, i)) != null) break;
+            }
+            if (match == null && partial == null) {
+                i++;
+                continue;
+            }
+            out.append(t, run, i);
+            if (match != null) {
+                out.append(match.by, 0, match.by.count());
+                i += match.from.count();
+            } else {
+                Lexer replaced = Lexer.lex(partial);
+                out.append(replaced, 0, replaced.count());
+                i++;
+            }
+            run = i;
+        }
+        out.append(t, run, to);
+    }
+}
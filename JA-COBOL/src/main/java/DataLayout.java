@@ -0,0 +1,276 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WORKING-STORAGE 布局
+ * 按层号把数据描述项组织成组项/基本项，计算每个字段在记录中的偏移量和长度
+ * （REDEFINES 与被重定义项共用字节，OCCURS 项占 元素长度 × 个数），
+ * 并生成带 VALUE 初值的初始化操作。
+ */
+final class DataLayout {
+    /** 一个数据描述项，编译期可变，布局完成后转换为 VarSpec */
+    static final class Item {
+        final int level;
+        final String name;          // FILLER 为 null
+        final Item parent;
+        boolean isGroup = true;
+        boolean isNumeric;
+        boolean signed;
+        int usage = CobolInterpreter.VarSpec.DISPLAY;   // 组项的 USAGE 由下级继承
+        int digits;
+        int offset;
+        int length;                 // OCCURS 项为一个元素的长度
+        int occurs;                 // OCCURS 个数，没有时为 0
+        int[] strides = NO_DIMS;    // 自身及上级 OCCURS 从外到内的元素间距
+        int[] counts = NO_DIMS;     // 对应的元素个数
+        boolean inRedefines;        // 自身或上级带 REDEFINES，不参与默认初始化
+        List<String> value;         // VALUE 子句的记号，没有时为 null
+        Item(int level, String name, Item parent) {
+            this.level = level;
+            this.name = name;
+            this.parent = parent;
+        }
+        /** 在父项中占用的字节数 */
+        int extent() { return occurs > 0 ? length * occurs : length; }
+        CobolInterpreter.VarSpec toSpec() {
+            return new CobolInterpreter.VarSpec(isNumeric, signed, usage, digits, offset, length, strides, counts);
+        }
+    }
+
+    /** 正在填充的组项，next 为下一个子项的偏移量 */
+    private static final class Frame {
+        final Item item;
+        int next;
+        Frame(Item item, int next) {
+            this.item = item;
+            this.next = next;
+        }
+    }
+
+    private static final int[] NO_DIMS = new int[0];
+
+    final List<Item> items = new ArrayList<>();
+    private final Map<String, Item> byName = new HashMap<>();
+    private final Deque<Frame> open = new ArrayDeque<>();
+    private int recordLength;
+
+    DataLayout() {
+        open.push(new Frame(null, 0));
+    }
+
+    /** 处理一个以句点结束的数据描述项（已去掉句点并切分成记号） */
+    void entry(List<String> tokens) {
+        if (tokens.isEmpty() || !tokens.get(0).matches("\\d{1,2}")) return;
+        int level = Integer.parseInt(tokens.get(0));
+        if (level == 66 || level == 88) return;   // RENAMES / 条件名不占存储
+        if (level == 77) level = 1;
+
+        int i = 1;
+        String name = null;
+        if (i < tokens.size() && !isClause(tokens.get(i))) {
+            name = tokens.get(i++).toUpperCase();
+            if (name.equals("FILLER")) name = null;
+        }
+
+        closeTo(level);
+        Frame parent = open.peek();
+        Item item = new Item(level, name, parent.item);
+        item.inRedefines = parent.item != null && parent.item.inRedefines;
+        if (parent.item != null) item.usage = parent.item.usage;
+        Item redefined = null;
+        String pic = null;
+        for (; i < tokens.size(); i++) {
+            String t = tokens.get(i).toUpperCase();
+            switch (t) {
+                case "PIC", "PICTURE" -> {
+                    if (i + 1 < tokens.size() && tokens.get(i + 1).equalsIgnoreCase("IS")) i++;
+                    if (i + 1 < tokens.size()) pic = tokens.get(++i).toUpperCase();
+                }
+                case "VALUE", "VALUES" -> {
+                    if (i + 1 < tokens.size() && tokens.get(i + 1).toUpperCase().matches("IS|ARE")) i++;
+                    if (i + 1 < tokens.size()) item.value = List.of(tokens.get(++i));
+                }
+                case "COMP-3", "COMPUTATIONAL-3", "PACKED-DECIMAL" -> item.usage = CobolInterpreter.VarSpec.PACKED;
+                case "COMP", "COMPUTATIONAL", "COMP-4", "COMPUTATIONAL-4", "BINARY" -> item.usage = CobolInterpreter.VarSpec.BINARY;
+                case "COMP-5", "COMPUTATIONAL-5" -> item.usage = CobolInterpreter.VarSpec.NATIVE;
+                case "DISPLAY" -> item.usage = CobolInterpreter.VarSpec.DISPLAY;
+                case "REDEFINES" -> {
+                    if (i + 1 < tokens.size()) redefined = byName.get(tokens.get(++i).toUpperCase());
+                }
+                case "OCCURS" -> {
+                    if (i + 1 < tokens.size() && tokens.get(i + 1).matches("\\d+")) item.occurs = Integer.parseInt(tokens.get(++i));
+                    if (i + 1 < tokens.size() && tokens.get(i + 1).equalsIgnoreCase("TIMES")) i++;
+                }
+                default -> {}
+            }
+        }
+
+        item.offset = redefined != null ? redefined.offset : parent.next;
+        if (redefined != null) item.inRedefines = true;
+        if (pic != null) {
+            item.isGroup = false;
+            parsePicture(item, pic);
+            if (!item.isNumeric) item.usage = CobolInterpreter.VarSpec.DISPLAY;
+            else if (item.usage == CobolInterpreter.VarSpec.PACKED) item.length = Packed.length(item.digits);
+            else if (item.usage != CobolInterpreter.VarSpec.DISPLAY) item.length = CobolInterpreter.VarSpec.binaryLength(item.digits);
+            parent.next = Math.max(parent.next, item.offset + item.extent());
+        } else {
+            open.push(new Frame(item, item.offset));
+        }
+        items.add(item);
+        if (name != null) byName.put(name, item);
+    }
+
+    private static boolean isClause(String token) {
+        return switch (token.toUpperCase()) {
+            case "PIC", "PICTURE", "VALUE", "VALUES", "REDEFINES", "USAGE", "OCCURS",
+                 "COMP-3", "COMPUTATIONAL-3", "PACKED-DECIMAL", "COMP", "COMPUTATIONAL", "COMP-4",
+                 "COMPUTATIONAL-4", "BINARY", "COMP-5", "COMPUTATIONAL-5" -> true;
+            default -> false;
+        };
+    }
+
+    /** 结束层号 >= level 的组项，组项长度为其子项所占范围 */
+    private void closeTo(int level) {
+        while (open.size() > 1 && open.peek().item.level >= level) {
+            Frame done = open.pop();
+            done.item.length = done.next - done.item.offset;
+            Frame parent = open.peek();
+            parent.next = Math.max(parent.next, done.item.offset + done.item.extent());
+        }
+    }
+
+    /**
+     * PIC 9(n) / S9(n) / X(n) / A(n) ...：S 不占存储，其余每个符号一个字节（DISPLAY 格式）。
+     * 数值字段只有整数，假想小数点 V 与缩放位 P 编译时报错，不会把小数部分悄悄丢掉
+     */
+    private static void parsePicture(Item item, String pic) {
+        boolean numeric = true;
+        int length = 0;
+        for (int i = 0; i < pic.length(); i++) {
+            char c = pic.charAt(i);
+            int count = 1;
+            if (i + 1 < pic.length() && pic.charAt(i + 1) == '(') {
+                int close = pic.indexOf(')', i);
+                if (close < 0) break;
+                count = Integer.parseInt(pic.substring(i + 2, close));
+                i = close;
+            }
+            switch (c) {
+                case 'S' -> item.signed = true;
+                case 'V', 'P' -> throw new CobolInterpreter.CobolError("UNSUPPORTED PICTURE: " + pic);
+                case '9' -> length += count;
+                default -> { numeric = false; length += count; }
+            }
+        }
+        item.isNumeric = numeric && length > 0;
+        item.length = length;
+        item.digits = length;
+    }
+
+    /** 结束所有组项，计算 OCCURS 维度，返回记录长度 */
+    int finish() {
+        closeTo(0);
+        recordLength = open.peek().next;
+        for (Item item : items) dimensions(item);
+        return recordLength;
+    }
+
+    /** 上级组项先于下级出现在 items 中，维度可以直接继承 */
+    private static void dimensions(Item item) {
+        int[] strides = item.parent == null ? NO_DIMS : item.parent.strides;
+        int[] counts = item.parent == null ? NO_DIMS : item.parent.counts;
+        if (item.occurs > 0) {
+            strides = Arrays.copyOf(strides, strides.length + 1);
+            counts = Arrays.copyOf(counts, counts.length + 1);
+            strides[strides.length - 1] = item.length;
+            counts[counts.length - 1] = item.occurs;
+        }
+        item.strides = strides;
+        item.counts = counts;
+    }
+
+    /**
+     * 初始化操作：整个记录填空格，数值字段为 0，再按声明顺序应用 VALUE 子句；
+     * OCCURS 表中的字段对每个元素重复，不需要先在堆上生成整个记录的映像
+     */
+    Storage.Init[] initOps() {
+        List<Storage.Init> ops = new ArrayList<>();
+        ops.add(new Storage.Init(0, null, recordLength, Storage.SPACE, NO_DIMS, NO_DIMS));
+        for (Item item : items) {
+            if (item.isGroup || !item.isNumeric || item.inRedefines) continue;
+            if (item.usage == CobolInterpreter.VarSpec.DISPLAY)
+                ops.add(new Storage.Init(item.offset, null, item.length, (byte) '0', item.strides, item.counts));
+            else
+                ops.add(new Storage.Init(item.offset, numberImage(item.toSpec(), 0), item.length, (byte) 0, item.strides, item.counts));
+        }
+        for (Item item : items) {
+            if (item.value == null || item.value.isEmpty()) continue;
+            String v = item.value.get(0);
+            CobolInterpreter.VarSpec spec = item.toSpec();
+            byte[] bytes = figurativeImage(v, spec);
+            if (bytes == null) bytes = literalImage(v, spec);
+            ops.add(new Storage.Init(item.offset, bytes, item.length, (byte) 0, item.strides, item.counts));
+        }
+        return ops.toArray(new Storage.Init[0]);
+    }
+
+    /** ZERO / SPACE / HIGH-VALUE / LOW-VALUE 按目标字段格式生成的映像，不是表意常量时返回 null */
+    static byte[] figurativeImage(String word, CobolInterpreter.VarSpec spec) {
+        byte[] image = new byte[spec.length];
+        switch (word.toUpperCase()) {
+            case "ZERO", "ZEROS", "ZEROES" -> {
+                if (spec.isNumeric) return numberImage(spec, 0);
+                Arrays.fill(image, (byte) '0');
+            }
+            case "SPACE", "SPACES" -> Arrays.fill(image, Storage.SPACE);
+            case "HIGH-VALUE", "HIGH-VALUES" -> Arrays.fill(image, (byte) 0xFF);
+            case "LOW-VALUE", "LOW-VALUES" -> Arrays.fill(image, (byte) 0);
+            default -> { return null; }
+        }
+        return image;
+    }
+
+    /**
+     * 把字面量转换成目标字段格式的字节映像（长度等于字段长度）：
+     * 数值字段按其 USAGE 编码，字符字段左对齐补空格
+     */
+    static byte[] literalImage(String literal, CobolInterpreter.VarSpec spec) {
+        int length = spec.length;
+        byte[] image = new byte[length];
+        boolean quoted = literal.length() >= 2 && (literal.charAt(0) == '\'' || literal.charAt(0) == '"')
+                && literal.charAt(literal.length() - 1) == literal.charAt(0);
+        String text = quoted ? literal.substring(1, literal.length() - 1) : literal;
+        if (spec.isNumeric) {
+            long n;
+            try { n = Long.parseLong(text.trim()); }
+            catch (NumberFormatException e) {
+                throw new CobolInterpreter.CobolError((text.indexOf('.') >= 0 ? "UNSUPPORTED DECIMAL LITERAL: " : "INVALID NUMERIC VALUE: ") + literal);
+            }
+            return numberImage(spec, n);
+        } else {
+            byte[] src = text.getBytes(Storage.CHARSET);
+            int n = Math.min(length, src.length);
+            System.arraycopy(src, 0, image, 0, n);
+            Arrays.fill(image, n, length, Storage.SPACE);
+        }
+        return image;
+    }
+
+    /** 数值按字段的 USAGE 编码成字节映像 */
+    static byte[] numberImage(CobolInterpreter.VarSpec spec, long value) {
+        byte[] image = new byte[spec.length];
+        switch (spec.usage) {
+            case CobolInterpreter.VarSpec.PACKED -> Packed.encode(image, 0, spec.length, spec.digits, spec.signed, value);
+            case CobolInterpreter.VarSpec.BINARY, CobolInterpreter.VarSpec.NATIVE -> Storage.encodeBinary(image, 0, spec.length,
+                    spec.usage == CobolInterpreter.VarSpec.BINARY, spec.truncate(value));
+            default -> Storage.encodeZoned(image, 0, spec.length, spec.signed, value);
+        }
+        return image;
+    }
+}
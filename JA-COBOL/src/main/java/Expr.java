@@ -0,0 +1,104 @@
+import java.io.Serializable;
+
+/**
+ * 编译后的算术表达式
+ * COMPUTE / EVALUATE 的表达式文本由 CobolCompiler 一次性解析成这棵树：
+ * 常量已折叠，变量已绑定为 Stmt.Ref，执行时只遍历树，不解析字符串、不分配对象
+ */
+abstract class Expr implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    abstract long eval(CobolRun rt);
+
+    /** 编译时已知的值，不是常量时为 null */
+    Long constant() { return null; }
+
+    static Expr add(Expr l, Expr r) {
+        Long a = l.constant(), b = r.constant();
+        return a != null && b != null ? new Const(a + b) : new Add(l, r);
+    }
+
+    static Expr subtract(Expr l, Expr r) {
+        Long a = l.constant(), b = r.constant();
+        return a != null && b != null ? new Const(a - b) : new Subtract(l, r);
+    }
+
+    static Expr multiply(Expr l, Expr r) {
+        Long a = l.constant(), b = r.constant();
+        return a != null && b != null ? new Const(a * b) : new Multiply(l, r);
+    }
+
+    /** 除数为常量 0 时不折叠，留到执行时抛出 ArithmeticException */
+    static Expr divide(Expr l, Expr r) {
+        Long a = l.constant(), b = r.constant();
+        return a != null && b != null && b != 0 ? new Const(a / b) : new Divide(l, r);
+    }
+
+    static Expr negate(Expr e) {
+        Long a = e.constant();
+        return a != null ? new Const(-a) : new Negate(e);
+    }
+
+    static final class Const extends Expr {
+        private static final long serialVersionUID = 1L;
+        final long value;
+        Const(long value) { this.value = value; }
+        @Override long eval(CobolRun rt) { return value; }
+        @Override Long constant() { return value; }
+    }
+
+    /** 变量：数值字段直接取值，字符字段与未声明变量按文本转换，不是数字时为 0 */
+    static final class Field extends Expr {
+        private static final long serialVersionUID = 1L;
+        final Stmt.Ref ref;
+        Field(Stmt.Ref ref) { this.ref = ref; }
+        @Override long eval(CobolRun rt) { return rt.operandValue(ref); }
+    }
+
+    static final class Add extends Expr {
+        private static final long serialVersionUID = 1L;
+        final Expr left, right;
+        Add(Expr left, Expr right) {
+            this.left = left;
+            this.right = right;
+        }
+        @Override long eval(CobolRun rt) { return left.eval(rt) + right.eval(rt); }
+    }
+
+    static final class Subtract extends Expr {
+        private static final long serialVersionUID = 1L;
+        final Expr left, right;
+        Subtract(Expr left, Expr right) {
+            this.left = left;
+            this.right = right;
+        }
+        @Override long eval(CobolRun rt) { return left.eval(rt) - right.eval(rt); }
+    }
+
+    static final class Multiply extends Expr {
+        private static final long serialVersionUID = 1L;
+        final Expr left, right;
+        Multiply(Expr left, Expr right) {
+            this.left = left;
+            this.right = right;
+        }
+        @Override long eval(CobolRun rt) { return left.eval(rt) * right.eval(rt); }
+    }
+
+    static final class Divide extends Expr {
+        private static final long serialVersionUID = 1L;
+        final Expr left, right;
+        Divide(Expr left, Expr right) {
+            this.left = left;
+            this.right = right;
+        }
+        @Override long eval(CobolRun rt) { return left.eval(rt) / right.eval(rt); }
+    }
+
+    static final class Negate extends Expr {
+        private static final long serialVersionUID = 1L;
+        final Expr operand;
+        Negate(Expr operand) { this.operand = operand; }
+        @Override long eval(CobolRun rt) { return -operand.eval(rt); }
+    }
+}
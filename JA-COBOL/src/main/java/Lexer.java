@@ -0,0 +1,340 @@
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 词法分析
+ * 对整个源码扫描一遍，得到紧凑的记号流：每个记号只记录种类、关键字编号（见 CobolKeywords）、
+ * 在源码中的起止位置与行号，不为记号创建子串；需要文本时再按位置截取。
+ * 记号以空白分隔：引号字面量到配对的引号为止（两个引号表示一个引号字符），
+ * 后面跟空白或位于末尾的句点是单独的句点记号，其余句点（1.5、9.99）属于记号本身；
+ * 名字连同紧跟的下标（X(I)）、PIC 字符串（9(3)V99）各是一个记号。
+ * 自由格式中以 * 开头的行与 *> 之后的内容是注释。
+ * 固定格式按列切分每一行：1-6 列序号、7 列指示符、8-72 列程序正文、73 列之后的标识都不参与分析；
+ * 指示符 * 和 / 是注释行，D 是调试行（不编译），- 是续行：字面量从续行第一个引号之后接着上一行，
+ * 其它记号从续行第一个非空白字符接着上一行。续行的记号只记录起止位置，需要文本时才拼接。
+ * COPY 展开后的记号流由多个源码的记号拼成（见 CopybookLibrary），每个记号记录它来自哪个源码
+ */
+final class Lexer {
+    static final byte WORD = 0, NUMBER = 1, STRING = 2, PICTURE = 3, PERIOD = 4, OTHER = 5;
+    private static final byte CONTINUED = 0x40;    // 记号跨续行，文本要拼接
+    // 固定格式的列（从 0 起）：指示符、正文开始、正文结束（不含）
+    private static final int INDICATOR = 6, AREA_A = 7, AREA_END = 72;
+
+    private final CharSequence src;     // 正在扫描的源码，拼接得到的记号流为 null
+    private final boolean fixed;
+    private CharSequence[] sources;
+    private boolean[] fixedSources;
+    private Map<CharSequence, Integer> sourceIndex;    // 拼接时已加入的源码
+    private short[] sourceIds = new short[256];
+    private int count;
+    private byte[] kinds = new byte[256];
+    private short[] keywords = new short[256];
+    private int[] starts = new int[256];
+    private int[] ends = new int[256];
+    private int[] lines = new int[256];
+    private boolean openLiteral;    // 最后一个记号是到行尾还没有结束的字面量
+
+    private Lexer(CharSequence src, boolean fixed) {
+        this.src = src;
+        this.fixed = fixed;
+        this.sources = new CharSequence[] {src};
+        this.fixedSources = new boolean[] {fixed};
+    }
+
+    /** 空的记号流，用 append 从其它记号流拼接 */
+    static Lexer concat() {
+        Lexer t = new Lexer(null, false);
+        t.sources = new CharSequence[0];
+        t.fixedSources = new boolean[0];
+        t.sourceIndex = new IdentityHashMap<>();
+        return t;
+    }
+
+    /** 把 other 的记号 from..to-1 接在后面（只复制位置，不复制文本） */
+    void append(Lexer other, int from, int to) {
+        short[] ids = new short[other.sources.length];
+        for (int s = 0; s < ids.length; s++) {
+            CharSequence source = other.sources[s];
+            Integer id = sourceIndex.get(source);
+            if (id == null) {
+                id = sources.length;
+                sources = Arrays.copyOf(sources, id + 1);
+                fixedSources = Arrays.copyOf(fixedSources, id + 1);
+                sources[id] = source;
+                fixedSources[id] = other.fixedSources[s];
+                sourceIndex.put(source, id);
+            }
+            ids[s] = (short) (int) id;
+        }
+        for (int i = from; i < to; i++) {
+            add(other.kinds[i], other.keywords[i], other.starts[i], other.ends[i], other.lines[i]);
+            sourceIds[count - 1] = ids[other.sourceIds[i]];
+        }
+    }
+
+    /** 自由格式 */
+    static Lexer lex(CharSequence src) { return lex(src, false); }
+
+    /** fixed：按固定格式的列处理每一行 */
+    static Lexer lex(CharSequence src, boolean fixed) {
+        Lexer t = new Lexer(src, fixed);
+        t.scan();
+        return t;
+    }
+
+    private void scan() {
+        int n = src.length();
+        for (int ls = 0, line = 0; ls < n; line++) {
+            int le = ls;
+            while (le < n && src.charAt(le) != '\n') le++;
+            if (!fixed) {
+                scanArea(ls, le, line);
+            } else {
+                int to = Math.min(areaEnd(src, ls, le), ls + AREA_END);
+                char indicator = to > ls + INDICATOR ? src.charAt(ls + INDICATOR) : ' ';
+                boolean comment = indicator == '*' || indicator == '/' || indicator == 'D' || indicator == 'd';
+                // 其它指示符多半是按固定格式读入的自由格式源码，整行错位，不能当作普通行
+                if (!comment && indicator != ' ' && indicator != '-')
+                    throw new CobolInterpreter.CobolError("INVALID INDICATOR '" + indicator + "' IN LINE " + (line + 1));
+                if (!comment && to > ls + AREA_A) {
+                    int from = indicator == '-' ? continueToken(ls + AREA_A, to) : ls + AREA_A;
+                    scanArea(from, to, line);
+                }
+            }
+            ls = le + 1;
+        }
+    }
+
+    /** 行尾（不含 \r） */
+    private static int areaEnd(CharSequence s, int ls, int le) { return le > ls && s.charAt(le - 1) == '\r' ? le - 1 : le; }
+
+    private void scanArea(int from, int to, int line) {
+        boolean lineStart = true;
+        int i = from;
+        while (i < to) {
+            char c = src.charAt(i);
+            if (Character.isWhitespace(c)) { i++; continue; }
+            if (c == '*' && (lineStart && !fixed || i + 1 < to && src.charAt(i + 1) == '>')) return;
+            lineStart = false;
+            int start = i;
+            openLiteral = false;
+            if (c == '\'' || c == '"') {
+                i = closeQuote(i, to);
+                add(STRING, -1, start, i, line);
+            } else if (c == '.' && separator(i + 1, to)) {
+                add(PERIOD, -1, start, ++i, line);
+            } else if (count > 0 && isPicClause()) {
+                i = endOfRun(i, to);
+                add(PICTURE, -1, start, i, line);
+            } else {
+                // 名字的哈希边扫描边计算，遇到不能出现在保留字中的字符就不再查关键字
+                int hash = 0;
+                boolean plain = true;
+                while (i < to) {
+                    char d = src.charAt(i);
+                    if (Character.isWhitespace(d) || d == '.' && separator(i + 1, to)) break;
+                    if (plain && (Character.isLetterOrDigit(d) || d == '-' || d == '_')) hash = hash * 31 + CobolKeywords.upper(d);
+                    else plain = false;
+                    i++;
+                }
+                byte kind = Character.isLetter(c) ? WORD : isNumber(start, i) ? NUMBER : OTHER;
+                int keyword = kind == WORD && plain ? CobolKeywords.id(src, start, i, hash) : -1;
+                add(kind, keyword, start, i, line);
+            }
+        }
+    }
+
+    /**
+     * 续行（固定格式）：上一行的字面量没有结束时，从续行第一个引号之后接着扫描；
+     * 否则第一个非空白字符开始的部分接在上一个记号后面。返回续行其余部分的开始位置
+     */
+    private int continueToken(int from, int to) {
+        int i = from;
+        while (i < to && Character.isWhitespace(src.charAt(i))) i++;
+        if (i >= to || count == 0) return i;
+        int last = count - 1;
+        char c = src.charAt(i);
+        if (openLiteral) {
+            if (c != '\'' && c != '"') return i;
+            ends[last] = closeQuote(i, to);
+        } else if (kind(last) == WORD || kind(last) == NUMBER || kind(last) == PICTURE) {
+            ends[last] = endOfRun(i, to);
+        } else {
+            return i;
+        }
+        kinds[last] |= CONTINUED;
+        if (kind(last) == WORD) keywords[last] = (short) CobolKeywords.id(text(last));
+        return ends[last];
+    }
+
+    /** 引号字面量的结束位置（配对引号之后）；到 to 还没有配对的引号时记下 openLiteral */
+    private int closeQuote(int i, int to) {
+        char q = src.charAt(i++);
+        while (i < to) {
+            char c = src.charAt(i++);
+            if (c == q) {
+                if (i < to && src.charAt(i) == q) i++;
+                else {
+                    openLiteral = false;
+                    return i;
+                }
+            }
+        }
+        openLiteral = true;
+        return i;
+    }
+
+    private boolean separator(int i, int to) { return i >= to || Character.isWhitespace(src.charAt(i)); }
+
+    private int endOfRun(int i, int to) {
+        while (i < to && !Character.isWhitespace(src.charAt(i)) && !(src.charAt(i) == '.' && separator(i + 1, to))) i++;
+        return i;
+    }
+
+    /** 前一个记号是 PIC / PICTURE [IS] */
+    private boolean isPicClause() {
+        int k = keywords[count - 1];
+        if (k == CobolKeywords.IS && count > 1) k = keywords[count - 2];
+        return k == CobolKeywords.PIC || k == CobolKeywords.PICTURE;
+    }
+
+    private boolean isNumber(int start, int end) {
+        int i = start;
+        char c = src.charAt(i);
+        if ((c == '+' || c == '-') && end - start > 1) c = src.charAt(++i);
+        return Character.isDigit(c) || c == '.' && i + 1 < end && Character.isDigit(src.charAt(i + 1));
+    }
+
+    private void add(byte kind, int keyword, int start, int end, int line) {
+        if (count == kinds.length) {
+            int size = count * 2;
+            kinds = Arrays.copyOf(kinds, size);
+            keywords = Arrays.copyOf(keywords, size);
+            starts = Arrays.copyOf(starts, size);
+            ends = Arrays.copyOf(ends, size);
+            lines = Arrays.copyOf(lines, size);
+            sourceIds = Arrays.copyOf(sourceIds, size);
+        }
+        kinds[count] = kind;
+        keywords[count] = (short) keyword;
+        starts[count] = start;
+        ends[count] = end;
+        lines[count] = line;
+        count++;
+    }
+
+    int count() { return count; }
+    boolean fixed() { return fixed; }
+    int kind(int i) { return kinds[i] & ~CONTINUED; }
+    int keyword(int i) { return keywords[i]; }
+    int start(int i) { return starts[i]; }
+    int end(int i) { return ends[i]; }
+    int line(int i) { return lines[i]; }
+
+    /** 记号的文本 */
+    String text(int i) {
+        if ((kinds[i] & CONTINUED) != 0) return joined(i);
+        return sources[sourceIds[i]].subSequence(starts[i], ends[i]).toString();
+    }
+
+    /**
+     * 两个记号的文本是否相同，名字不区分大小写。
+     * 一边是 UTF-8 映射（见 MappedSource）、另一边是字符串时，非 ASCII 字符要解码后才能比较
+     */
+    boolean sameText(int i, Lexer other, int j) {
+        if (((kinds[i] | other.kinds[j]) & CONTINUED) != 0) return sameDecodedText(i, other, j);
+        CharSequence a = sources[sourceIds[i]], b = other.sources[other.sourceIds[j]];
+        boolean mixed = MappedSource.utf8Bytes(a) != MappedSource.utf8Bytes(b);
+        int len = ends[i] - starts[i];
+        if (len != other.ends[j] - other.starts[j]) {
+            // 长度不同时只有 UTF-8 一边含有多字节字符才可能相同
+            if (!mixed) return false;
+            boolean nonAscii = MappedSource.utf8Bytes(a) ? nonAscii(a, starts[i], ends[i]) : nonAscii(b, other.starts[j], other.ends[j]);
+            return nonAscii && sameDecodedText(i, other, j);
+        }
+        boolean literal = kind(i) == STRING;
+        for (int k = 0; k < len; k++) {
+            char x = a.charAt(starts[i] + k), y = b.charAt(other.starts[j] + k);
+            if (mixed && (x >= 0x80 || y >= 0x80)) return sameDecodedText(i, other, j);
+            if (x != y && (literal || CobolKeywords.upper(x) != CobolKeywords.upper(y))) return false;
+        }
+        return true;
+    }
+
+    private boolean sameDecodedText(int i, Lexer other, int j) {
+        return kind(i) == STRING ? text(i).equals(other.text(j)) : text(i).equalsIgnoreCase(other.text(j));
+    }
+
+    private static boolean nonAscii(CharSequence s, int from, int to) {
+        for (int k = from; k < to; k++) if (s.charAt(k) >= 0x80) return true;
+        return false;
+    }
+
+    /**
+     * 记号 from..to-1 的原文：同一行内的记号之间保留原来的空白，换行处是一个空格
+     * （固定格式的序号区、标识区和注释行不会混进来）
+     */
+    String text(int from, int to) {
+        if (src != null && !fixed && lines[from] == lines[to - 1]) return src.subSequence(starts[from], ends[to - 1]).toString();
+        StringBuilder sb = new StringBuilder();
+        for (int k = from; k < to; k++) {
+            CharSequence s = sources[sourceIds[k]];
+            if (k > from) {
+                // 不同源码（COPY 展开、REPLACING 替换）的记号之间也是一个空格
+                boolean newline = sourceIds[k] != sourceIds[k - 1] || starts[k] < ends[k - 1];
+                for (int p = ends[k - 1]; p < starts[k] && !newline; p++) newline = s.charAt(p) == '\n';
+                if (newline) sb.append(' ');
+                else sb.append(s.subSequence(ends[k - 1], starts[k]));
+            }
+            // 经 subSequence 截取：UTF-8 映射在那里解码，逐个 charAt 得到的是字节
+            if ((kinds[k] & CONTINUED) != 0) sb.append(joined(k));
+            else sb.append(s.subSequence(starts[k], ends[k]));
+        }
+        return sb.toString();
+    }
+
+    /** 跨续行的记号：拼接各行的片段，字面量保留到 72 列为止的空白、续行去掉开头的引号 */
+    private String joined(int i) {
+        CharSequence src = sources[sourceIds[i]];
+        StringBuilder sb = new StringBuilder();
+        boolean literal = kind(i) == STRING;
+        int p = starts[i], end = ends[i];
+        while (true) {
+            int ls = p;
+            while (ls > 0 && src.charAt(ls - 1) != '\n') ls--;
+            int le = p;
+            while (le < src.length() && src.charAt(le) != '\n') le++;
+            int pieceEnd = Math.min(end, Math.min(areaEnd(src, ls, le), ls + AREA_END));
+            int from = sb.length();
+            sb.append(src.subSequence(p, pieceEnd));
+            if (pieceEnd >= end) break;
+            if (!literal) {
+                int k = sb.length();
+                while (k > from && Character.isWhitespace(sb.charAt(k - 1))) k--;
+                sb.setLength(k);
+            }
+            // 下一个续行（其间的注释行跳过）
+            do {
+                ls = le + 1;
+                le = ls;
+                while (le < src.length() && src.charAt(le) != '\n') le++;
+            } while (le - ls <= INDICATOR || src.charAt(ls + INDICATOR) != '-');
+            p = ls + AREA_A;
+            while (Character.isWhitespace(src.charAt(p))) p++;
+            if (literal) p++;
+        }
+        return sb.toString();
+    }
+
+    /** 记号是否为 word（不区分大小写），用于不在保留字表中的词（GOTO 等） */
+    boolean is(int i, String word) {
+        if ((kinds[i] & CONTINUED) != 0) return text(i).equalsIgnoreCase(word);
+        if (ends[i] - starts[i] != word.length()) return false;
+        CharSequence s = sources[sourceIds[i]];
+        for (int k = 0; k < word.length(); k++) {
+            if (CobolKeywords.upper(s.charAt(starts[i] + k)) != word.charAt(k)) return false;
+        }
+        return true;
+    }
+}
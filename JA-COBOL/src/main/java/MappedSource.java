@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 内存映射的源码
+ * 源文件映射到内存后按字节直接当作字符读取：UTF-8 的字节原样，EBCDIC（IBM037）查表，
+ * 词法分析只记录映射中的位置，不把整个文件解码成字符串，也不切分成行；记号文本用到时才截取。
+ * UTF-8 多字节字符的各个字节都在 0x80 以上，不会被当成空白、引号、句点等 ASCII 分隔符，
+ * 所以含有非 ASCII 字符（如注释中的中文）的文件同样按字节分析，只在截取记号文本时按 UTF-8 解码；
+ * 固定格式的列按字节计算
+ */
+final class MappedSource implements CharSequence {
+    private final ByteBuffer bytes;
+    private final char[] table;     // EBCDIC 的字节 -> 字符，ASCII 为 null
+
+    private MappedSource(ByteBuffer bytes, char[] table) {
+        this.bytes = bytes;
+        this.table = table;
+    }
+
+    /** 映射 path；ebcdic 为 true 时按 IBM037 解码，换行符 NL（0x15）与 LF（0x25）都作为行尾 */
+    static CharSequence open(Path path, boolean ebcdic) throws IOException {
+        ByteBuffer bytes;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("source too large: " + path);
+            bytes = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        return new MappedSource(bytes, ebcdic ? Ebcdic.TABLE : null);
+    }
+
+    /** 用作编译缓存键的原始字节 */
+    ByteBuffer bytes() { return bytes.duplicate(); }
+
+    boolean ebcdic() { return table != null; }
+
+    /** s 是按字节读取的 UTF-8 映射：charAt 得到的是字节，非 ASCII 字符的位置与个数和解码后的字符串不同 */
+    static boolean utf8Bytes(CharSequence s) { return s instanceof MappedSource m && m.table == null; }
+
+    @Override
+    public int length() { return bytes.limit(); }
+
+    @Override
+    public char charAt(int index) {
+        int b = bytes.get(index) & 0xFF;
+        return table != null ? table[b] : (char) b;
+    }
+
+    /** 截取的文本是独立的字符串，不引用映射；UTF-8 在这里才解码 */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        byte[] b = new byte[end - start];
+        bytes.get(start, b);
+        if (table == null) return new String(b, StandardCharsets.UTF_8);
+        char[] c = new char[b.length];
+        for (int i = 0; i < b.length; i++) c[i] = table[b[i] & 0xFF];
+        return new String(c);
+    }
+
+    @Override
+    public String toString() { return subSequence(0, length()).toString(); }
+
+    /** 第一次用到 EBCDIC 时才建表 */
+    private static final class Ebcdic {
+        static final char[] TABLE = table();
+
+        private static char[] table() {
+            Charset cp037;
+            try {
+                cp037 = Charset.forName("IBM037");
+            } catch (UnsupportedCharsetException e) {
+                throw new IllegalStateException("EBCDIC (IBM037) not supported by this JRE", e);
+            }
+            byte[] all = new byte[256];
+            for (int i = 0; i < 256; i++) all[i] = (byte) i;
+            char[] t = new String(all, cp037).toCharArray();
+            t[0x15] = '\n';
+            t[0x25] = '\n';
+            return t;
+        }
+    }
+}
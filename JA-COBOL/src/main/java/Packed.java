@@ -0,0 +1,242 @@
+import java.util.Arrays;
+
+/**
+ * PACKED-DECIMAL（COMP-3）运算
+ * 每个字节两位数字，最后一个字节的低半字节是符号：C 正、D 负、F 无符号。
+ * 两个压缩字段的符号字节总是右对齐的，所以按字节从右往左逐对处理，
+ * ADD / SUBTRACT / MULTIPLY / 比较 / MOVE 都直接在压缩字节上完成，不经过 long 或字符串。
+ */
+final class Packed {
+    static final int POSITIVE = 0x0C, NEGATIVE = 0x0D, UNSIGNED = 0x0F;
+
+    private Packed() {}
+
+    /** n 位数字占用的字节数 */
+    static int length(int digits) { return digits / 2 + 1; }
+
+    static boolean negative(Storage s, int off, int len) {
+        int sign = s.get(off + len - 1) & 0x0F;
+        return sign == NEGATIVE || sign == 0x0B;
+    }
+
+    static boolean isZero(Storage s, int off, int len) {
+        if ((s.get(off + len - 1) & 0xF0) != 0) return false;
+        for (int i = off; i < off + len - 1; i++) if (s.get(i) != 0) return false;
+        return true;
+    }
+
+    /** 每个数字半字节都在 0-9 之间，符号半字节是 C / D / F */
+    static boolean valid(Storage s, int off, int len) {
+        int last = off + len - 1;
+        for (int i = off; i < last; i++) {
+            int b = s.get(i) & 0xFF;
+            if (b >>> 4 > 9 || (b & 0x0F) > 9) return false;
+        }
+        int b = s.get(last) & 0xFF, sign = b & 0x0F;
+        return b >>> 4 <= 9 && (sign == POSITIVE || sign == NEGATIVE || sign == UNSIGNED);
+    }
+
+    // === 与 long 之间的转换（DISPLAY、混合格式运算） ===
+    static long decode(Storage s, int off, int len) {
+        long v = 0;
+        int last = off + len - 1;
+        for (int i = off; i < last; i++) {
+            int b = s.get(i) & 0xFF;
+            v = v * 100 + (b >>> 4) * 10 + (b & 0x0F);
+        }
+        int b = s.get(last) & 0xFF;
+        v = v * 10 + (b >>> 4);
+        int sign = b & 0x0F;
+        return sign == NEGATIVE || sign == 0x0B ? -v : v;
+    }
+
+    static void put(Storage s, int off, int len, int digits, boolean signed, long value) {
+        boolean negative = value < 0;
+        long v = negative ? -value : value;
+        int last = off + len - 1;
+        s.set(last, (byte) ((int) (v % 10) << 4 | sign(signed, negative && value != 0)));
+        v /= 10;
+        for (int i = last - 1; i >= off; i--) {
+            int lo = (int) (v % 10);
+            v /= 10;
+            s.set(i, (byte) ((int) (v % 10) << 4 | lo));
+            v /= 10;
+        }
+        truncate(s, off, len, digits);
+    }
+
+    static void encode(byte[] b, int off, int len, int digits, boolean signed, long value) {
+        boolean negative = value < 0;
+        long v = negative ? -value : value;
+        int last = off + len - 1;
+        b[last] = (byte) ((int) (v % 10) << 4 | sign(signed, negative && value != 0));
+        v /= 10;
+        for (int i = last - 1; i >= off; i--) {
+            int lo = (int) (v % 10);
+            v /= 10;
+            b[i] = (byte) ((int) (v % 10) << 4 | lo);
+            v /= 10;
+        }
+        if (digits % 2 == 0) b[off] &= 0x0F;
+    }
+
+    private static int sign(boolean signed, boolean negative) {
+        return !signed ? UNSIGNED : negative ? NEGATIVE : POSITIVE;
+    }
+
+    /** 偶数位数的字段首字节高半字节不属于 PIC，截掉 */
+    private static void truncate(Storage s, int off, int len, int digits) {
+        if (digits % 2 == 0) s.set(off, (byte) (s.get(off) & 0x0F));
+    }
+
+    // === 比较 ===
+    /** 比较两个压缩字段的数值，返回负数 / 0 / 正数 */
+    static int compare(Storage s, int aOff, int aLen, int bOff, int bLen) {
+        boolean an = negative(s, aOff, aLen), bn = negative(s, bOff, bLen);
+        int m = compareMagnitude(s, aOff, aLen, bOff, bLen);
+        if (an == bn) return an ? -m : m;
+        if (isZero(s, aOff, aLen) && isZero(s, bOff, bLen)) return 0;   // +0 与 -0
+        return an ? -1 : 1;
+    }
+
+    /** 绝对值比较：BCD 字节按无符号值比较的顺序就是数值顺序 */
+    private static int compareMagnitude(Storage s, int aOff, int aLen, int bOff, int bLen) {
+        for (int j = Math.max(aLen, bLen) - 1; j >= 0; j--) {
+            int mask = j == 0 ? 0xF0 : 0xFF;
+            int a = j < aLen ? s.get(aOff + aLen - 1 - j) & mask : 0;
+            int b = j < bLen ? s.get(bOff + bLen - 1 - j) & mask : 0;
+            if (a != b) return a < b ? -1 : 1;
+        }
+        return 0;
+    }
+
+    // === ADD / SUBTRACT ===
+    /** dst += src（negate 为真时 dst -= src），超出 dst 位数的高位被截掉 */
+    static void add(Storage s, int srcOff, int srcLen, boolean negate,
+                    int dstOff, int dstLen, int dstDigits, boolean dstSigned) {
+        boolean dn = negative(s, dstOff, dstLen);
+        boolean sn = negative(s, srcOff, srcLen) ^ negate;
+        boolean resultNegative;
+        if (dn == sn) {
+            addMagnitude(s, srcOff, srcLen, dstOff, dstLen);
+            resultNegative = dn;
+        } else if (compareMagnitude(s, dstOff, dstLen, srcOff, srcLen) >= 0) {
+            subtractMagnitude(s, dstOff, dstLen, srcOff, srcLen, dstOff, dstLen);
+            resultNegative = dn;
+        } else {
+            subtractMagnitude(s, srcOff, srcLen, dstOff, dstLen, dstOff, dstLen);
+            resultNegative = sn;
+        }
+        finish(s, dstOff, dstLen, dstDigits, dstSigned, resultNegative);
+    }
+
+    /** |dst| += |src|，符号半字节不变 */
+    private static void addMagnitude(Storage s, int srcOff, int srcLen, int dstOff, int dstLen) {
+        int carry = 0;
+        for (int j = 0; j < dstLen; j++) {
+            if (j >= srcLen && carry == 0) break;
+            int i = dstOff + dstLen - 1 - j;
+            int d = s.get(i) & 0xFF;
+            int b = j < srcLen ? s.get(srcOff + srcLen - 1 - j) & 0xFF : 0;
+            int lo;
+            if (j == 0) {
+                lo = d & 0x0F;      // 符号
+            } else {
+                lo = (d & 0x0F) + (b & 0x0F) + carry;
+                carry = lo >= 10 ? 1 : 0;
+                if (carry != 0) lo -= 10;
+            }
+            int hi = (d >>> 4) + (b >>> 4) + carry;
+            carry = hi >= 10 ? 1 : 0;
+            if (carry != 0) hi -= 10;
+            s.set(i, (byte) (hi << 4 | lo));
+        }
+    }
+
+    /**
+     * |dst| = |a| - |b|，要求 |a| >= |b|；dst 与 a 或 b 是同一个字段时从右往左原地计算，
+     * 每个字节先读后写，结果正确。符号半字节保持 dst 原来的值
+     */
+    private static void subtractMagnitude(Storage s, int aOff, int aLen, int bOff, int bLen, int dstOff, int dstLen) {
+        int borrow = 0;
+        for (int j = 0; j < dstLen; j++) {
+            int i = dstOff + dstLen - 1 - j;
+            int a = j < aLen ? s.get(aOff + aLen - 1 - j) & 0xFF : 0;
+            int b = j < bLen ? s.get(bOff + bLen - 1 - j) & 0xFF : 0;
+            int lo;
+            if (j == 0) {
+                lo = s.get(i) & 0x0F;
+            } else {
+                lo = (a & 0x0F) - (b & 0x0F) - borrow;
+                borrow = lo < 0 ? 1 : 0;
+                if (borrow != 0) lo += 10;
+            }
+            int hi = (a >>> 4) - (b >>> 4) - borrow;
+            borrow = hi < 0 ? 1 : 0;
+            if (borrow != 0) hi += 10;
+            s.set(i, (byte) (hi << 4 | lo));
+        }
+    }
+
+    // === MULTIPLY ===
+    /** dst *= src：逐位相乘，只计算 dst 能容纳的低位 */
+    static void multiply(Storage s, int srcOff, int srcLen, int dstOff, int dstLen, int dstDigits, boolean dstSigned) {
+        boolean resultNegative = negative(s, dstOff, dstLen) ^ negative(s, srcOff, srcLen);
+        int[] a = digits(s, dstOff, dstLen, s.scratch(0, 2 * dstLen));
+        int[] b = digits(s, srcOff, srcLen, s.scratch(1, 2 * srcLen));
+        int[] acc = s.scratch(2, dstDigits + 1);
+        int na = 2 * dstLen - 1, nb = 2 * srcLen - 1;
+        Arrays.fill(acc, 0, dstDigits + 1, 0);
+        for (int i = 0; i < nb && i < dstDigits; i++) {
+            if (b[i] == 0) continue;
+            for (int j = 0; j < na && i + j < dstDigits; j++) acc[i + j] += b[i] * a[j];
+        }
+        for (int k = 0; k < dstDigits; k++) {
+            acc[k + 1] += acc[k] / 10;
+            acc[k] %= 10;
+        }
+        int last = dstOff + dstLen - 1;
+        s.set(last, (byte) (acc[0] << 4 | (s.get(last) & 0x0F)));
+        for (int j = 1; j < dstLen; j++) {
+            int lo = 2 * j - 1 < dstDigits ? acc[2 * j - 1] : 0;
+            int hi = 2 * j < dstDigits ? acc[2 * j] : 0;
+            s.set(last - j, (byte) (hi << 4 | lo));
+        }
+        finish(s, dstOff, dstLen, dstDigits, dstSigned, resultNegative);
+    }
+
+    /** 拆成从个位开始的数字 */
+    private static int[] digits(Storage s, int off, int len, int[] out) {
+        int last = off + len - 1;
+        out[0] = (s.get(last) & 0xFF) >>> 4;
+        for (int j = 1; j < len; j++) {
+            int b = s.get(last - j) & 0xFF;
+            out[2 * j - 1] = b & 0x0F;
+            out[2 * j] = b >>> 4;
+        }
+        return out;
+    }
+
+    // === MOVE ===
+    /** 压缩字段之间的 MOVE：数字右对齐，高位截掉或补 0，符号按目标格式重写 */
+    static void move(Storage s, int srcOff, int srcLen, int dstOff, int dstLen, int dstDigits, boolean dstSigned) {
+        boolean overlap = srcOff < dstOff + dstLen && dstOff < srcOff + srcLen;
+        if (overlap && srcOff + srcLen != dstOff + dstLen) {
+            // REDEFINES 造成的错位重叠：先取出数值再写回
+            put(s, dstOff, dstLen, dstDigits, dstSigned, decode(s, srcOff, srcLen));
+            return;
+        }
+        boolean negative = negative(s, srcOff, srcLen);
+        for (int j = 0; j < dstLen; j++)
+            s.set(dstOff + dstLen - 1 - j, j < srcLen ? s.get(srcOff + srcLen - 1 - j) : 0);
+        finish(s, dstOff, dstLen, dstDigits, dstSigned, negative);
+    }
+
+    /** 截掉多余的高位并写入符号，结果为 0 时符号为正 */
+    private static void finish(Storage s, int off, int len, int digits, boolean signed, boolean negative) {
+        truncate(s, off, len, digits);
+        int last = off + len - 1;
+        if (negative && signed && isZero(s, off, len)) negative = false;
+        s.set(last, (byte) ((s.get(last) & 0xF0) | sign(signed, negative)));
+    }
+}
@@ -0,0 +1,120 @@
+import java.io.Serializable;
+
+/**
+ * 编译后的条件
+ * IF / PERFORM UNTIL / VARYING UNTIL 的条件文本由 CobolCompiler 一次性解析成这棵树：
+ * AND / OR / NOT 组合、关系条件（Stmt.Condition）、类别条件与符号条件，操作数在编译时已绑定。
+ * AND / OR 短路求值；指令序列中组合条件展开成条件跳转（见 Code）
+ */
+abstract class Predicate implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    abstract boolean test(CobolRun rt);
+
+    static Predicate not(Predicate p) {
+        return p instanceof Not n ? n.operand : new Not(p);
+    }
+
+    static final class And extends Predicate {
+        private static final long serialVersionUID = 1L;
+        final Predicate left, right;
+        And(Predicate left, Predicate right) {
+            this.left = left;
+            this.right = right;
+        }
+        @Override boolean test(CobolRun rt) { return left.test(rt) && right.test(rt); }
+    }
+
+    static final class Or extends Predicate {
+        private static final long serialVersionUID = 1L;
+        final Predicate left, right;
+        Or(Predicate left, Predicate right) {
+            this.left = left;
+            this.right = right;
+        }
+        @Override boolean test(CobolRun rt) { return left.test(rt) || right.test(rt); }
+    }
+
+    static final class Not extends Predicate {
+        private static final long serialVersionUID = 1L;
+        final Predicate operand;
+        Not(Predicate operand) { this.operand = operand; }
+        @Override boolean test(CobolRun rt) { return !operand.test(rt); }
+    }
+
+    /**
+     * 类别条件 IS NUMERIC / ALPHABETIC / ALPHABETIC-UPPER / ALPHABETIC-LOWER。
+     * 字符字段按 256 项的字符类别表逐字节判断；数值字段按存储格式检查数字与符号
+     */
+    static final class ClassTest extends Predicate {
+        private static final long serialVersionUID = 1L;
+        static final int DIGIT = 1, UPPER = 2, LOWER = 4, SPACE = 8;
+        static final int NUMERIC = DIGIT, ALPHABETIC = UPPER | LOWER | SPACE,
+                ALPHABETIC_UPPER = UPPER | SPACE, ALPHABETIC_LOWER = LOWER | SPACE;
+        static final byte[] CLASSES = new byte[256];
+        static {
+            for (int c = '0'; c <= '9'; c++) CLASSES[c] = DIGIT;
+            for (int c = 'A'; c <= 'Z'; c++) CLASSES[c] = UPPER;
+            for (int c = 'a'; c <= 'z'; c++) CLASSES[c] = LOWER;
+            CLASSES[' '] = SPACE;
+        }
+
+        final Stmt.Ref ref;
+        final int mask;
+        ClassTest(Stmt.Ref ref, int mask) {
+            this.ref = ref;
+            this.mask = mask;
+        }
+
+        @Override boolean test(CobolRun rt) {
+            CobolInterpreter.VarSpec vs = ref.spec;
+            if (vs == null) {
+                Object v = rt.slot(ref.slot);
+                if (v instanceof Long) return mask == NUMERIC;
+                if (v == null || v.toString().isEmpty()) return false;
+                for (char c : v.toString().toCharArray()) {
+                    if (c > 0xFF || (CLASSES[c] & mask) == 0) return false;
+                }
+                return true;
+            }
+            Storage s = rt.storage();
+            int off = ref.offset(rt), len = vs.length;
+            if (!vs.isNumeric) return s.matches(off, len, CLASSES, mask);
+            if (mask != NUMERIC) return false;
+            return switch (vs.usage) {
+                case CobolInterpreter.VarSpec.PACKED -> Packed.valid(s, off, len);
+                case CobolInterpreter.VarSpec.DISPLAY -> zoned(s, off, len, vs.signed);
+                default -> true;
+            };
+        }
+
+        /** 外部十进制：全部是数字，有符号时最后一个字节可以带负号（高半字节 7） */
+        private static boolean zoned(Storage s, int off, int len, boolean signed) {
+            if (len > 1 && !s.matches(off, len - 1, CLASSES, DIGIT)) return false;
+            int last = s.get(off + len - 1) & 0xFF;
+            return (CLASSES[last] & DIGIT) != 0 || signed && (last & 0xF0) == 0x70 && (last & 0x0F) <= 9;
+        }
+    }
+
+    /** 符号条件 IS POSITIVE / NEGATIVE / ZERO；表达式除以 0 时条件为假 */
+    static final class SignTest extends Predicate {
+        private static final long serialVersionUID = 1L;
+        static final int POSITIVE = 1, NEGATIVE = 2, ZERO = 3;
+        final Expr value;
+        final int sign;
+        SignTest(Expr value, int sign) {
+            this.value = value;
+            this.sign = sign;
+        }
+
+        @Override boolean test(CobolRun rt) {
+            long v;
+            try { v = value.eval(rt); } catch (ArithmeticException e) { return false; }
+            return switch (sign) {
+                case POSITIVE -> v > 0;
+                case NEGATIVE -> v < 0;
+                default -> v == 0;
+            };
+        }
+    }
+}
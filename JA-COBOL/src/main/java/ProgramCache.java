@@ -0,0 +1,182 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.CodeSource;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 编译结果的磁盘缓存
+ * 以源码内容与解释器构建指纹的 SHA-256 为键，把 CobolProgram（段落与指令序列、数据布局、常量区初始化）
+ * 写成带版本号的二进制文件；之后运行同样的源码时一次读入整个文件并反序列化，跳过全部解析。
+ * 文件格式：魔数、格式版本、键，后面是对象流：COPY 用到的成员路径与内容摘要，然后是 CobolProgram。
+ * 指纹是解释器自身的类文件（目录或 jar）的摘要：操作码编号、编译方式或节点的执行语义改了，
+ * 对象流往往仍能读入（各类的 serialVersionUID 固定），所以不能靠反序列化失败来发现，
+ * 而是换了键、旧的缓存不再命中。取不到指纹时不使用缓存。
+ * 成员的内容改过时缓存失效；与格式版本不符、键不符或文件损坏时重新编译并覆盖缓存
+ */
+final class ProgramCache {
+    private static final int MAGIC = 0x4A434243;    // "JCBC"
+    private static final int VERSION = 4;
+    private static final int HEADER = 4 + 4 + 32;
+    private static final String SUFFIX = ".jcc";
+
+    private final Path dir;
+
+    ProgramCache(Path dir) { this.dir = dir; }
+
+    /** 命中时返回缓存中的编译结果，否则编译并写入缓存；写入失败不影响运行 */
+    CobolProgram compile(CharSequence source, boolean fixedFormat, CopybookLibrary copybooks) {
+        if (Build.FINGERPRINT == null) return CobolProgram.compile(source, fixedFormat, copybooks);
+        byte[] hash = hash(source, fixedFormat, copybooks);
+        Path file = dir.resolve(HexFormat.of().formatHex(hash) + SUFFIX);
+        CobolProgram cached = read(file, hash, fixedFormat, copybooks);
+        if (cached != null) return cached;
+        CobolCompiler compiler = new CobolCompiler();
+        compiler.copybooks = copybooks;
+        compiler.compile(source, fixedFormat);
+        CobolProgram program = compiler.program();
+        write(file, hash, compiler.copied, program);
+        return program;
+    }
+
+    /**
+     * 同样的文本按固定格式与自由格式、在不同的 COPY 库中编译的结果不同，格式与库目录也是键的一部分；
+     * 解释器换了构建时结果也不同，先加入构建指纹。内存映射的源码直接对映射的字节求哈希
+     */
+    static byte[] hash(CharSequence source, boolean fixedFormat, CopybookLibrary copybooks) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            if (Build.FINGERPRINT != null) md.update(Build.FINGERPRINT);
+            if (fixedFormat) md.update("FIXED\n".getBytes(StandardCharsets.UTF_8));
+            if (copybooks != null) {
+                for (Path d : copybooks.dirs()) md.update(("COPY " + d.toAbsolutePath().normalize() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            if (source instanceof MappedSource mapped) {
+                md.update((mapped.ebcdic() ? "EBCDIC\n" : "MAPPED\n").getBytes(StandardCharsets.UTF_8));
+                md.update(mapped.bytes());
+            } else {
+                md.update(source.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            return md.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CobolProgram read(Path file, byte[] hash, boolean fixedFormat, CopybookLibrary copybooks) {
+        byte[] bytes;
+        try {
+            if (!Files.isRegularFile(file)) return null;
+            bytes = Files.readAllBytes(file);
+        } catch (IOException e) {
+            return null;
+        }
+        if (bytes.length < HEADER) return null;
+        ByteBuffer header = ByteBuffer.wrap(bytes, 0, HEADER);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) return null;
+        if (!Arrays.equals(bytes, 8, HEADER, hash, 0, hash.length)) return null;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes, HEADER, bytes.length - HEADER))) {
+            in.setObjectInputFilter(ProgramCache::filter);
+            String[] paths = (String[]) in.readObject();
+            byte[][] digests = (byte[][]) in.readObject();
+            for (int i = 0; i < paths.length; i++) {
+                if (copybooks == null) return null;
+                // 成员按 (路径, 修改时间) 缓存在库中，没有改过的成员不会重新读入
+                if (!Arrays.equals(copybooks.load(Path.of(paths[i]), fixedFormat).digest, digests[i])) return null;
+            }
+            return (CobolProgram) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** 第一次用到缓存时计算一次 */
+    private static final class Build {
+        static final byte[] FINGERPRINT = fingerprint();
+
+        /** 格式版本加上解释器的类文件（按相对路径排序）或 jar 的内容，取不到时为 null */
+        private static byte[] fingerprint() {
+            CodeSource code = ProgramCache.class.getProtectionDomain().getCodeSource();
+            if (code == null || code.getLocation() == null) return null;
+            try {
+                MessageDigest md = MessageDigest.getInstance("SHA-256");
+                md.update(ByteBuffer.allocate(4).putInt(VERSION).array());
+                Path self = Path.of(code.getLocation().toURI());
+                if (!Files.isDirectory(self)) {
+                    md.update(Files.readAllBytes(self));
+                    return md.digest();
+                }
+                try (Stream<Path> files = Files.walk(self)) {
+                    for (Path f : files.filter(p -> p.toString().endsWith(".class")).sorted().toList()) {
+                        md.update(self.relativize(f).toString().getBytes(StandardCharsets.UTF_8));
+                        md.update(Files.readAllBytes(f));
+                    }
+                }
+                return md.digest();
+            } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+                return null;
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /** 先写临时文件再改名，并发运行的作业不会读到写了一半的缓存 */
+    private static void write(Path file, byte[] hash, List<CopybookLibrary.Member> copied, CobolProgram program) {
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(buf);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.write(hash);
+            String[] paths = new String[copied.size()];
+            byte[][] digests = new byte[copied.size()][];
+            for (int i = 0; i < paths.length; i++) {
+                paths[i] = copied.get(i).path.toString();
+                digests[i] = copied.get(i).digest;
+            }
+            try (ObjectOutputStream out = new ObjectOutputStream(buf)) {
+                out.writeObject(paths);
+                out.writeObject(digests);
+                out.writeObject(program);
+            }
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "jcc", ".tmp");
+            try {
+                Files.write(tmp, buf.toByteArray());
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            // 缓存只是加速，写不进去时下次重新编译
+        }
+    }
+
+    /** 只允许反序列化解释器自己的类、基本类型数组与 java.lang / java.util 中的值和集合 */
+    private static ObjectInputFilter.Status filter(ObjectInputFilter.FilterInfo info) {
+        Class<?> c = info.serialClass();
+        if (c == null) return ObjectInputFilter.Status.UNDECIDED;
+        while (c.isArray()) c = c.getComponentType();
+        if (c.isPrimitive() || c.getClassLoader() == ProgramCache.class.getClassLoader() && c.getPackageName().isEmpty())
+            return ObjectInputFilter.Status.ALLOWED;
+        String pkg = c.getPackageName();
+        return pkg.equals("java.lang") || pkg.equals("java.util") ? ObjectInputFilter.Status.ALLOWED
+                : ObjectInputFilter.Status.REJECTED;
+    }
+}
@@ -0,0 +1,694 @@
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+
+/**
+ * PROCEDURE DIVISION 语句节点
+ * 由 CobolCompiler 在运行前一次性生成，执行时不再解析字符串；
+ * 变量都已解析为 Ref（槽位或记录偏移量），已声明字段的 MOVE 直接按偏移量拷贝
+ */
+abstract class Stmt implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** 执行一条语句；控制流语句（IF、EVALUATE、PERFORM、GOTO、STOP RUN）由 Code 展开成跳转，不单独执行 */
+    void exec(CobolRun rt) {
+        throw new IllegalStateException(getClass().getSimpleName());
+    }
+
+    /** 语句写入的变量，不写变量时为 null */
+    Ref target() { return null; }
+
+    /**
+     * 变量引用：未声明变量的槽位，或已声明字段（可带 OCCURS 下标）。
+     * 常量下标在编译时折算进 base，只有变量下标在执行时计算
+     */
+    static final class Ref implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final int slot;
+        final CobolInterpreter.VarSpec spec;  // 未声明变量为 null
+        final int base;                       // 字段偏移量（已加上常量下标）
+        final Expr[] index;                   // 各维的变量下标，常量维为 null；没有变量下标时整个为 null
+        Ref(int slot, CobolInterpreter.VarSpec spec, int base, Expr[] index) {
+            this.slot = slot;
+            this.spec = spec;
+            this.base = base;
+            this.index = index;
+        }
+        int offset(CobolRun rt) {
+            if (index == null) return base;
+            int off = base;
+            for (int k = 0; k < index.length; k++) {
+                if (index[k] == null) continue;
+                long i = index[k].eval(rt);
+                if (i < 1 || i > spec.counts[k]) throw new CobolInterpreter.CobolError("SUBSCRIPT OUT OF RANGE: " + i);
+                off += (int) (i - 1) * spec.strides[k];
+            }
+            return off;
+        }
+        int length() { return spec.length; }
+
+        /** 已声明的 PIC 9 字段（任何 USAGE） */
+        boolean isNumeric() { return spec != null && spec.isNumeric; }
+    }
+
+    // === 基础运算 ===
+    /**
+     * 通用 MOVE：来源或目标是未声明变量，值的类型要到执行时才知道。
+     * 第一次执行时按看到的值类型把节点特化成一条快速路径，之后只检查类型；
+     * 类型变化时去特化，改走通用路径且不再特化，避免来回切换。
+     * 特化状态属于一次运行，按 site 放在 CobolRun 中，节点本身不可变
+     */
+    static final class Move extends Stmt {
+        private static final long serialVersionUID = 1L;
+        private static final int UNINITIALIZED = 0, TO_SLOT = 1, LONG_TO_NUMBER = 2, STRING_TO_TEXT = 3, GENERIC = 4;
+        final Ref target;
+        final Object literal;   // 字面量（String 或 Long），为 null 时取 source 变量
+        final Ref source;
+        final int site;         // 特化状态的编号
+        Move(Ref target, Object literal, Ref source, int site) {
+            this.target = target;
+            this.literal = literal;
+            this.source = source;
+            this.site = site;
+        }
+        @Override Ref target() { return target; }
+        @Override void exec(CobolRun rt) {
+            Object value = literal;
+            if (value == null) {
+                value = rt.value(source);
+                if (value == null) value = 0L;
+            }
+            switch (rt.state(site)) {
+                case TO_SLOT -> {
+                    rt.setSlot(target.slot, value);
+                    return;
+                }
+                case LONG_TO_NUMBER -> {
+                    if (value instanceof Long n) { rt.setNum(target, n); return; }
+                }
+                case STRING_TO_TEXT -> {
+                    if (value instanceof String s) { rt.storage().putString(target.offset(rt), target.length(), s); return; }
+                }
+                case GENERIC -> {
+                    rt.move(target, value);
+                    return;
+                }
+                default -> {
+                    rt.setState(site, specialize(value));
+                    rt.move(target, value);
+                    return;
+                }
+            }
+            rt.setState(site, GENERIC);
+            rt.move(target, value);
+        }
+        private int specialize(Object value) {
+            CobolInterpreter.VarSpec t = target.spec;
+            if (t == null) return TO_SLOT;
+            if (t.isNumeric) return value instanceof Long ? LONG_TO_NUMBER : GENERIC;
+            return value instanceof String ? STRING_TO_TEXT : GENERIC;
+        }
+    }
+
+    /** 字面量 MOVE 到已声明字段：映像在编译时已按目标格式生成 */
+    static final class MoveBytes extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final Ref target;
+        final byte[] image;
+        MoveBytes(Ref target, byte[] image) {
+            this.target = target;
+            this.image = image;
+        }
+        @Override Ref target() { return target; }
+        @Override void exec(CobolRun rt) {
+            rt.storage().put(target.offset(rt), image.length, image);
+        }
+    }
+
+    /** 字段到字符字段（或同格式数值字段）的 MOVE：有界字节拷贝 */
+    static final class MoveField extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final Ref source;
+        final Ref target;
+        MoveField(Ref source, Ref target) {
+            this.source = source;
+            this.target = target;
+        }
+        @Override Ref target() { return target; }
+        @Override void exec(CobolRun rt) {
+            rt.storage().move(source.offset(rt), source.length(), target.offset(rt), target.length());
+        }
+    }
+
+    /** 不同格式 PIC 9 字段之间的 MOVE：按数值转换 */
+    static final class MoveNumber extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final Ref target;
+        final Ref source;
+        MoveNumber(Ref target, Ref source) {
+            this.target = target;
+            this.source = source;
+        }
+        @Override Ref target() { return target; }
+        @Override void exec(CobolRun rt) {
+            rt.setNum(target, rt.num(source));
+        }
+    }
+
+    /** COMPUTE：表达式无法编译或执行时除以 0，目标保持不变 */
+    static final class Compute extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final Ref target;
+        final Expr expr;        // 为 null 时语句不起作用
+        Compute(Ref target, Expr expr) {
+            this.target = target;
+            this.expr = expr;
+        }
+        @Override Ref target() { return target; }
+        @Override void exec(CobolRun rt) {
+            if (expr == null) return;
+            long val;
+            try { val = expr.eval(rt); }
+            catch (ArithmeticException e) { return; }
+            rt.storeNumber(target, val);
+        }
+    }
+
+    /**
+     * ADD / SUBTRACT / MULTIPLY / DIVIDE，目标不是 PIC 9 字段（未声明变量或字符字段）。
+     * 目标是存着整数的未声明变量时特化为直接读取 Long，目标值类型变化时去特化（状态见 Move）
+     */
+    static final class Arith extends Stmt {
+        private static final long serialVersionUID = 1L;
+        static final int ADD = 0, SUBTRACT = 1, MULTIPLY = 2, DIVIDE = 3;
+        private static final int UNINITIALIZED = 0, LONG_SLOT = 1, GENERIC = 2;
+        final int op;
+        final long literal;
+        final Ref source;       // 为 null 时取 literal
+        final Ref target;
+        final int site;         // 特化状态的编号
+        Arith(int op, long literal, Ref source, Ref target, int site) {
+            this.op = op;
+            this.literal = literal;
+            this.source = source;
+            this.target = target;
+            this.site = site;
+        }
+        @Override Ref target() { return target; }
+        @Override void exec(CobolRun rt) {
+            long value = source == null ? literal : rt.numericValue(source);
+            long old;
+            int state = rt.state(site);
+            if (state == LONG_SLOT && rt.slot(target.slot) instanceof Long n) {
+                old = n;
+            } else {
+                if (state == UNINITIALIZED)
+                    rt.setState(site, target.spec == null && rt.slot(target.slot) instanceof Long ? LONG_SLOT : GENERIC);
+                else rt.setState(site, GENERIC);
+                old = rt.numericValue(target);
+            }
+            switch (op) {
+                case ADD -> rt.storeNumber(target, old + value);
+                case SUBTRACT -> rt.storeNumber(target, old - value);
+                case MULTIPLY -> rt.storeNumber(target, old * value);
+                default -> {
+                    if (value != 0) rt.storeNumber(target, old / value);
+                    else rt.display("ERROR: DIVIDE BY ZERO");
+                }
+            }
+        }
+    }
+
+    /** 目标为 PIC 9 字段的四则运算，直接读写 zoned 数值，不装箱 */
+    static final class NumArith extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final int op;
+        final long literal;
+        final Ref source;       // 为 null 时取 literal
+        final Ref target;
+        NumArith(int op, long literal, Ref source, Ref target) {
+            this.op = op;
+            this.literal = literal;
+            this.source = source;
+            this.target = target;
+        }
+        @Override Ref target() { return target; }
+        @Override void exec(CobolRun rt) {
+            long value = source == null ? literal : rt.numericValue(source);
+            int off = target.offset(rt);
+            long old = rt.num(target, off);
+            switch (op) {
+                case Arith.ADD -> rt.setNum(target, off, old + value);
+                case Arith.SUBTRACT -> rt.setNum(target, off, old - value);
+                case Arith.MULTIPLY -> rt.setNum(target, off, old * value);
+                default -> {
+                    if (value != 0) rt.setNum(target, off, old / value);
+                    else rt.display("ERROR: DIVIDE BY ZERO");
+                }
+            }
+        }
+    }
+
+    /** COMP-3 字段之间的 MOVE：在压缩字节上重新对齐数字 */
+    static final class MovePacked extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final Ref source;
+        final Ref target;
+        MovePacked(Ref source, Ref target) {
+            this.source = source;
+            this.target = target;
+        }
+        @Override Ref target() { return target; }
+        @Override void exec(CobolRun rt) {
+            CobolInterpreter.VarSpec d = target.spec;
+            Packed.move(rt.storage(), source.offset(rt), source.length(), target.offset(rt), d.length, d.digits, d.signed);
+        }
+    }
+
+    /** 目标与来源都是 COMP-3（字面量在常量区）的 ADD / SUBTRACT / MULTIPLY，不解码成 long */
+    static final class PackedArith extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final int op;
+        final Ref source;
+        final Ref target;
+        PackedArith(int op, Ref source, Ref target) {
+            this.op = op;
+            this.source = source;
+            this.target = target;
+        }
+        @Override Ref target() { return target; }
+        @Override void exec(CobolRun rt) {
+            CobolInterpreter.VarSpec d = target.spec;
+            int src = source.offset(rt), dst = target.offset(rt);
+            if (op == Arith.MULTIPLY)
+                Packed.multiply(rt.storage(), src, source.length(), dst, d.length, d.digits, d.signed);
+            else
+                Packed.add(rt.storage(), src, source.length(), op == Arith.SUBTRACT, dst, d.length, d.digits, d.signed);
+        }
+    }
+
+    /** 目标为 COMP / COMP-5 字段的四则运算：直接读写二进制整数，只在写回时按 PIC 截断 */
+    static final class BinaryArith extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final int op;
+        final long literal;
+        final Ref source;       // 为 null 时取 literal
+        final Ref target;
+        final boolean bigEndian;
+        BinaryArith(int op, long literal, Ref source, Ref target) {
+            this.op = op;
+            this.literal = literal;
+            this.source = source;
+            this.target = target;
+            this.bigEndian = target.spec.usage == CobolInterpreter.VarSpec.BINARY;
+        }
+        @Override Ref target() { return target; }
+        @Override void exec(CobolRun rt) {
+            CobolInterpreter.VarSpec t = target.spec;
+            long value = source == null ? literal : rt.numericValue(source);
+            int off = target.offset(rt);
+            Storage s = rt.storage();
+            long old = s.getBinary(off, t.length, bigEndian) & t.mask;
+            long result;
+            switch (op) {
+                case Arith.ADD -> result = old + value;
+                case Arith.SUBTRACT -> result = old - value;
+                case Arith.MULTIPLY -> result = old * value;
+                default -> {
+                    if (value == 0) { rt.display("ERROR: DIVIDE BY ZERO"); return; }
+                    result = old / value;
+                }
+            }
+            s.putBinary(off, t.length, bigEndian, t.truncate(result));
+        }
+    }
+
+    // === I/O ===
+    /** DISPLAY 的各项依次输出成一行，不加分隔 */
+    static final class Display extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final String[] literals;    // 各项的字面量，为 null 的项显示 refs 中同一位置的变量
+        final Ref[] refs;
+        Display(String[] literals, Ref[] refs) {
+            this.literals = literals;
+            this.refs = refs;
+        }
+        @Override void exec(CobolRun rt) {
+            if (literals.length == 1) {
+                rt.display(literals[0] != null ? literals[0] : rt.displayValue(refs[0]));
+                return;
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < literals.length; i++) sb.append(literals[i] != null ? literals[i] : rt.displayValue(refs[i]));
+            rt.display(sb.toString());
+        }
+    }
+
+    static final class Accept extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final Ref target;
+        Accept(Ref target) { this.target = target; }
+        @Override Ref target() { return target; }
+        @Override void exec(CobolRun rt) {
+            try {
+                String input = rt.readInput();
+                if (input != null) rt.accept(target, input);
+            } catch (NoSuchElementException ignored) {}
+        }
+    }
+
+    // === 控制流 ===
+    /** GO TO：跳到目标段落，从那里继续顺序执行 */
+    static final class Goto extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final String label;
+        Goto(String label) { this.label = label; }
+    }
+
+    /**
+     * PERFORM A [THRU B]：从 A 开始顺序执行，执行完 B 的最后一条语句后返回；
+     * 没有段落名时是内联 PERFORM ... END-PERFORM，执行 body。
+     * 可带 n TIMES、UNTIL（默认先判断条件，WITH TEST AFTER 时先执行）或 VARYING ... AFTER ...
+     */
+    static final class Perform extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final String label;     // 内联 PERFORM 为 null
+        final String thru;      // 没有 THRU 时为 null
+        final Stmt[] body;      // 内联 PERFORM 的语句
+        final Expr times;       // n TIMES，没有时为 null
+        final boolean loop;     // PERFORM ... UNTIL
+        final Predicate until;  // 为 null 时条件恒为假
+        final boolean testAfter;
+        final Varying[] varying;    // VARYING 与各层 AFTER，从外到内；没有时长度为 0
+        Perform(String label, String thru, Stmt[] body, Expr times, boolean loop, Predicate until,
+                boolean testAfter, Varying[] varying) {
+            this.label = label;
+            this.thru = thru;
+            this.body = body;
+            this.times = times;
+            this.loop = loop;
+            this.until = until;
+            this.testAfter = testAfter;
+            this.varying = varying;
+        }
+        Perform withBody(Stmt[] body) {
+            return new Perform(label, thru, body, times, loop, until, testAfter, varying);
+        }
+    }
+
+    /**
+     * VARYING / AFTER 的一层：var 从 from 开始，每次加 by，until 为真时结束本层。
+     * 循环体不会改写 var 的字节、且字段格式的写入结果可以预先算出时，register 为真：
+     * 执行时 var 的值保存在基本类型的寄存器里，只写回字段、不再从字段读出
+     */
+    static final class Varying implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final Ref var;
+        final Expr from;
+        final Expr by;
+        final Predicate until;  // 为 null 时条件恒为假
+        boolean register;       // 编译完成后由 CobolCompiler 确定
+        Varying(Ref var, Expr from, Expr by, Predicate until) {
+            this.var = var;
+            this.from = from;
+            this.by = by;
+            this.until = until;
+        }
+        /** until 是 var 与另一个数值操作数的比较：寄存器模式下直接用寄存器比较 */
+        boolean registerTest() {
+            return register && until instanceof Condition c && c.numeric && !c.packed
+                    && c.left.ref != null && c.left.ref.slot == var.slot && c.left.ref.index == null
+                    && (c.right.ref == null || c.right.ref.slot != var.slot);
+        }
+    }
+
+    static final class StopRun extends Stmt {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** CONTINUE 与 EXIT：什么也不做，Code 与字节码层都不为它生成指令 */
+    static final class Continue extends Stmt {
+        private static final long serialVersionUID = 1L;
+        @Override void exec(CobolRun rt) {}
+    }
+
+    // === 条件 ===
+    /** 条件操作数：变量（未赋值时退回原文）或字面量 */
+    static final class Operand implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final Ref ref;          // 不是变量名时为 null
+        final Object literal;
+        final boolean numeric;  // PIC 9 字段或整数字面量，可按 long 比较
+        Operand(Ref ref, Object literal, boolean numeric) {
+            this.ref = ref;
+            this.literal = literal;
+            this.numeric = numeric;
+        }
+        Object value(CobolRun rt) {
+            if (ref == null) return literal;
+            Object v = rt.value(ref);
+            return v != null ? v : literal;
+        }
+        long number(CobolRun rt) {
+            return ref == null ? (long) literal : rt.num(ref);
+        }
+    }
+
+    /**
+     * 简单关系条件 a op b。
+     * 两边不全是数值字段时，按第一次求值看到的两边类型特化为整数比较或文本比较，类型变化时去特化（状态见 Move）
+     */
+    static final class Condition extends Predicate {
+        private static final long serialVersionUID = 1L;
+        private static final int UNINITIALIZED = 0, LONGS = 1, STRINGS = 2, GENERIC = 3;
+        final Operand left;
+        final String op;
+        final Operand right;
+        final boolean numeric;  // 两边都是数值时直接比较 long
+        final boolean packed;   // 两边都是 COMP-3（字面量在常量区）时直接比较压缩字节
+        final int site;         // 特化状态的编号
+        Condition(Operand left, String op, Operand right, int site) {
+            this.left = left;
+            this.site = site;
+            this.op = op;
+            this.right = right;
+            this.numeric = left.numeric && right.numeric;
+            this.packed = left.ref != null && left.ref.spec != null && left.ref.spec.isPacked()
+                    && right.ref != null && right.ref.spec != null && right.ref.spec.isPacked();
+        }
+        @Override boolean test(CobolRun rt) { return rt.evalCondition(this); }
+        /** 按值比较（变量值可能是整数或文本） */
+        boolean compareValues(CobolRun rt) {
+            Object l = left.value(rt);
+            Object r = right.value(rt);
+            switch (rt.state(site)) {
+                case LONGS -> {
+                    if (l instanceof Long a && r instanceof Long b) return CobolInterpreter.compare(op, a, b);
+                }
+                case STRINGS -> {
+                    if (l instanceof String a && r instanceof String b) return CobolInterpreter.compareText(op, a, b);
+                }
+                case GENERIC -> {
+                    return compareGeneric(l, r);
+                }
+                default -> {
+                    rt.setState(site, l instanceof Long && r instanceof Long ? LONGS
+                            : l instanceof String && r instanceof String ? STRINGS : GENERIC);
+                    return compareGeneric(l, r);
+                }
+            }
+            rt.setState(site, GENERIC);
+            return compareGeneric(l, r);
+        }
+        private boolean compareGeneric(Object l, Object r) {
+            if (l instanceof Long a && r instanceof Long b) return CobolInterpreter.compare(op, a, b);
+            return CobolInterpreter.compareText(op, String.valueOf(l), String.valueOf(r));
+        }
+    }
+
+    /** IF ... ELSE ... END-IF，两个分支在编译时已确定 */
+    static final class If extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final Predicate condition;  // 为 null 时条件恒为假
+        final Stmt[] thenBlock;
+        final Stmt[] elseBlock;
+        If(Predicate condition, Stmt[] thenBlock, Stmt[] elseBlock) {
+            this.condition = condition;
+            this.thenBlock = thenBlock;
+            this.elseBlock = elseBlock;
+        }
+    }
+
+    /**
+     * EVALUATE ... ALSO ... WHEN ... END-EVALUATE，各 WHEN 分支在编译时已确定。
+     * 各主语只求值一次；第一个主语的常量对象预先建成 CaseTable，执行时只检查查到的候选分支
+     */
+    static final class Evaluate extends Stmt {
+        private static final long serialVersionUID = 1L;
+        final Subject[] subjects;
+        final WhenArm[] arms;
+        private final CaseTable table;  // 第一个主语没有常量对象时为 null
+        private final int[] all;        // 没有查找表时按顺序检查全部分支
+        Evaluate(Subject[] subjects, WhenArm[] arms) {
+            this.subjects = subjects;
+            this.arms = arms;
+            Object[] keys = new Object[arms.length];
+            for (int i = 0; i < arms.length; i++) keys[i] = arms[i].objects == null ? null : arms[i].objects[0].key();
+            this.table = subjects[0].kind == Subject.CONDITION ? null : CaseTable.build(keys);
+            this.all = new int[arms.length];
+            for (int i = 0; i < arms.length; i++) all[i] = i;
+        }
+
+        /** 命中的 WHEN 分支下标，都不命中时为 arms.length */
+        int select(CobolRun rt) {
+            if (subjects.length == 1) return selectOne(rt);
+            int n = subjects.length;
+            long[] nums = new long[n];
+            String[] texts = new String[n];
+            boolean[] flags = new boolean[n];
+            for (int j = 0; j < n; j++) {
+                Subject s = subjects[j];
+                switch (s.kind) {
+                    case Subject.NUMBER -> {
+                        try { nums[j] = s.number.eval(rt); flags[j] = true; }
+                        catch (ArithmeticException ignored) {}
+                    }
+                    case Subject.TEXT -> texts[j] = Subject.text(s.text.value(rt));
+                    default -> flags[j] = s.condition == null ? s.truth : s.condition.test(rt);
+                }
+            }
+            int[] candidates = table == null ? all
+                    : subjects[0].kind == Subject.TEXT ? table.get(texts[0])
+                    : flags[0] ? table.get(nums[0]) : table.fallback();
+            for (int i : candidates) {
+                Match[] objects = arms[i].objects;
+                if (objects == null) return i;
+                boolean hit = true;
+                for (int j = 0; j < n && hit; j++) hit = objects[j].matches(rt, subjects[j], nums[j], texts[j], flags[j]);
+                if (hit) return i;
+            }
+            return arms.length;
+        }
+
+        /** 只有一个主语（最常见的 EVALUATE x WHEN 常量 ...）时不分配数组 */
+        private int selectOne(CobolRun rt) {
+            Subject s = subjects[0];
+            long num = 0;
+            String text = null;
+            boolean flag = false;
+            switch (s.kind) {
+                case Subject.NUMBER -> {
+                    try { num = s.number.eval(rt); flag = true; }
+                    catch (ArithmeticException ignored) {}
+                }
+                case Subject.TEXT -> text = Subject.text(s.text.value(rt));
+                default -> flag = s.condition == null ? s.truth : s.condition.test(rt);
+            }
+            int[] candidates = table == null ? all
+                    : s.kind == Subject.TEXT ? table.get(text)
+                    : flag ? table.get(num) : table.fallback();
+            for (int i : candidates) {
+                Match[] objects = arms[i].objects;
+                if (objects == null || objects[0].matches(rt, s, num, text, flag)) return i;
+            }
+            return arms.length;
+        }
+    }
+
+    /**
+     * EVALUATE 的一个主语：数值表达式、文本（字符字段、未声明变量或引号字面量）、
+     * 条件或 TRUE / FALSE
+     */
+    static final class Subject implements Serializable {
+        private static final long serialVersionUID = 1L;
+        static final int NUMBER = 0, TEXT = 1, CONDITION = 2;
+        final int kind;
+        final Expr number;
+        final Operand text;
+        final Predicate condition;  // 为 null 时是 TRUE / FALSE 字面量
+        final boolean truth;
+        private Subject(int kind, Expr number, Operand text, Predicate condition, boolean truth) {
+            this.kind = kind;
+            this.number = number;
+            this.text = text;
+            this.condition = condition;
+            this.truth = truth;
+        }
+        static Subject number(Expr e) { return new Subject(NUMBER, e, null, null, false); }
+        static Subject text(Operand o) { return new Subject(TEXT, null, o, null, false); }
+        static Subject condition(Predicate p, boolean truth) { return new Subject(CONDITION, null, null, p, truth); }
+
+        /** 文本比较时较短的一边补空格，去掉末尾空格后比较等价 */
+        static String text(Object v) { return String.valueOf(v).stripTrailing(); }
+    }
+
+    /** WHEN 的一个对象：ANY、值或 THRU 范围（可带 NOT），条件主语的对象是条件或 TRUE / FALSE */
+    static final class Match implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final boolean any;
+        final boolean not;
+        final Expr low, high;       // 数值主语；不是范围时 high 为 null，值超出 long 时 low 为 null
+        final Operand textLow, textHigh;
+        final Predicate condition;  // 为 null 时是 TRUE / FALSE 字面量
+        final boolean truth;
+        private Match(boolean any, boolean not, Expr low, Expr high, Operand textLow, Operand textHigh,
+                      Predicate condition, boolean truth) {
+            this.any = any;
+            this.not = not;
+            this.low = low;
+            this.high = high;
+            this.textLow = textLow;
+            this.textHigh = textHigh;
+            this.condition = condition;
+            this.truth = truth;
+        }
+        static Match any() { return new Match(true, false, null, null, null, null, null, false); }
+        static Match number(boolean not, Expr low, Expr high) { return new Match(false, not, low, high, null, null, null, false); }
+        static Match text(boolean not, Operand low, Operand high) { return new Match(false, not, null, null, low, high, null, false); }
+        static Match condition(Predicate p, boolean truth) { return new Match(false, false, null, null, null, null, p, truth); }
+
+        /** 可以放进 CaseTable 的常量（Long 或去掉末尾空格的 String），否则为 null */
+        Object key() {
+            if (any || not) return null;
+            if (low != null && high == null) return low.constant();
+            if (textLow != null && textHigh == null && textLow.ref == null) return Subject.text(textLow.literal);
+            return null;
+        }
+
+        /** flag：数值主语是否求值成功，条件主语的值 */
+        boolean matches(CobolRun rt, Subject s, long num, String text, boolean flag) {
+            if (any) return true;
+            boolean hit;
+            switch (s.kind) {
+                case Subject.NUMBER -> {
+                    if (!flag || low == null) return false;
+                    try {
+                        long lo = low.eval(rt);
+                        hit = high == null ? num == lo : num >= lo && num <= high.eval(rt);
+                    } catch (ArithmeticException e) {
+                        return false;
+                    }
+                }
+                case Subject.TEXT -> {
+                    if (textLow == null) return false;
+                    String lo = Subject.text(textLow.value(rt));
+                    hit = textHigh == null ? text.equals(lo)
+                            : CobolInterpreter.compareText(">=", text, lo)
+                            && CobolInterpreter.compareText("<=", text, Subject.text(textHigh.value(rt)));
+                }
+                default -> hit = flag == (condition == null ? truth : condition.test(rt));
+            }
+            return hit != not;
+        }
+    }
+
+    /** 一个 WHEN 分支；连续的几个 WHEN 共用同一个语句数组 */
+    static final class WhenArm implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final Match[] objects;  // 每个主语一个；WHEN OTHER 为 null
+        final Stmt[] body;
+        WhenArm(Match[] objects, Stmt[] body) {
+            this.objects = objects;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * WORKING-STORAGE 数据区
+ * 整个记录是一段连续字节，字段按 VarSpec 的偏移量和长度存取：
+ * - PIC X / 组项：字符字节，右补空格
+ * - PIC 9：DISPLAY（zoned）格式，每位一个字节 '0'..'9'，
+ *   PIC S9 的负号叠加在最后一位上（0x70 | 数字，即 'p'..'y'）
+ * - COMP-3：见 Packed
+ * - COMP / COMP-4 / BINARY：2、4 或 8 字节大端整数；COMP-5 为本机字节序
+ *
+ * 有两种后端：堆内 byte[]（默认），以及堆外直接内存（用于很大的 OCCURS 表，
+ * 数据不进入 GC 堆，run() 结束时通过 close() 立即释放）。
+ */
+abstract class Storage implements AutoCloseable {
+    static final Charset CHARSET = StandardCharsets.UTF_8;
+    static final byte SPACE = ' ';
+
+    private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle SHORT_NE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INT_NE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG_NE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    /** 初始化操作：在 offset 处写入 bytes（bytes 为 null 时把 length 个字节填为 fill），按 OCCURS 维度重复 */
+    static final class Init implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final int offset;
+        final byte[] bytes;
+        final int length;
+        final byte fill;
+        final int[] strides;
+        final int[] counts;
+        Init(int offset, byte[] bytes, int length, byte fill, int[] strides, int[] counts) {
+            this.offset = offset;
+            this.bytes = bytes;
+            this.length = length;
+            this.fill = fill;
+            this.strides = strides;
+            this.counts = counts;
+        }
+    }
+
+    static Storage allocate(int size, boolean offHeap) {
+        return offHeap ? new OffHeap(size) : new Heap(size);
+    }
+
+    abstract int size();
+
+    abstract byte get(int off);
+
+    abstract void set(int off, byte b);
+
+    abstract void fill(int off, int len, byte b);
+
+    /** 写入 src[srcOff, srcOff+len) */
+    abstract void write(int off, byte[] src, int srcOff, int len);
+
+    /** 读出到 dst[dstOff, dstOff+len) */
+    abstract void read(int off, byte[] dst, int dstOff, int len);
+
+    /** 区内拷贝，源与目标重叠（REDEFINES）时结果与先拷到中间缓冲区相同 */
+    abstract void copy(int srcOff, int dstOff, int len);
+
+    /** 2 / 4 / 8 字节二进制整数（有符号） */
+    abstract long getBinary(int off, int len, boolean bigEndian);
+
+    /** 写入二进制整数，超出字段宽度的高位丢弃 */
+    abstract void putBinary(int off, int len, boolean bigEndian, long value);
+
+    @Override public void close() {}
+
+    // 压缩十进制乘法等运算的工作数组，按需扩大后复用
+    private final int[][] scratch = new int[3][];
+
+    int[] scratch(int k, int size) {
+        int[] a = scratch[k];
+        if (a == null || a.length < size) scratch[k] = a = new int[size];
+        return a;
+    }
+
+    /** 按编译得到的初始化操作填充记录 */
+    void init(Init[] ops) {
+        for (Init op : ops) initDim(op, 0, op.offset);
+    }
+
+    private void initDim(Init op, int dim, int off) {
+        if (dim == op.counts.length) {
+            if (op.bytes != null) write(off, op.bytes, 0, op.bytes.length);
+            else fill(off, op.length, op.fill);
+            return;
+        }
+        for (int i = 0; i < op.counts[dim]; i++) initDim(op, dim + 1, off + i * op.strides[dim]);
+    }
+
+    // === 数值（zoned） ===
+    long getZoned(int off, int len) {
+        long v = 0;
+        int end = off + len;
+        for (int i = off; i < end; i++) v = v * 10 + (get(i) & 0x0F);
+        return (get(end - 1) & 0xF0) == 0x70 ? -v : v;
+    }
+
+    void putZoned(int off, int len, boolean signed, long value) {
+        boolean negative = value < 0;
+        long v = negative ? -value : value;
+        for (int i = off + len - 1; i >= off; i--) {
+            set(i, (byte) ('0' + v % 10));
+            v /= 10;
+        }
+        if (signed && negative) set(off + len - 1, (byte) (get(off + len - 1) | 0x40));
+    }
+
+    /** 写入 zoned 数值：高位超出的数字被截掉，无符号字段只保留绝对值 */
+    static void encodeZoned(byte[] b, int off, int len, boolean signed, long value) {
+        boolean negative = value < 0;
+        long v = negative ? -value : value;
+        for (int i = off + len - 1; i >= off; i--) {
+            b[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        if (signed && negative) b[off + len - 1] |= 0x40;
+    }
+
+    // === 二进制 ===
+    static long decodeBinary(byte[] b, int off, int len, boolean bigEndian) {
+        return switch (len) {
+            case 2 -> bigEndian ? (short) SHORT_BE.get(b, off) : (short) SHORT_NE.get(b, off);
+            case 4 -> bigEndian ? (int) INT_BE.get(b, off) : (int) INT_NE.get(b, off);
+            default -> bigEndian ? (long) LONG_BE.get(b, off) : (long) LONG_NE.get(b, off);
+        };
+    }
+
+    static void encodeBinary(byte[] b, int off, int len, boolean bigEndian, long value) {
+        switch (len) {
+            case 2 -> { if (bigEndian) SHORT_BE.set(b, off, (short) value); else SHORT_NE.set(b, off, (short) value); }
+            case 4 -> { if (bigEndian) INT_BE.set(b, off, (int) value); else INT_NE.set(b, off, (int) value); }
+            default -> { if (bigEndian) LONG_BE.set(b, off, value); else LONG_NE.set(b, off, value); }
+        }
+    }
+
+    // === 字符 ===
+    /** 每个字节在 256 项的类别表中都含有 mask 中的某一位 */
+    boolean matches(int off, int len, byte[] classes, int mask) {
+        for (int i = off; i < off + len; i++) {
+            if ((classes[get(i) & 0xFF] & mask) == 0) return false;
+        }
+        return true;
+    }
+
+    String getString(int off, int len) {
+        byte[] tmp = new byte[len];
+        read(off, tmp, 0, len);
+        return new String(tmp, CHARSET);
+    }
+
+    /** 左对齐写入字符串，超长截断、不足补空格 */
+    void putString(int off, int len, String s) { put(off, len, s.getBytes(CHARSET)); }
+
+    /** 左对齐写入字节，超长截断、不足补空格 */
+    void put(int off, int len, byte[] src) {
+        int n = Math.min(len, src.length);
+        write(off, src, 0, n);
+        if (n < len) fill(off + n, len - n, SPACE);
+    }
+
+    /** 字段到字段的字符 MOVE：有界拷贝后补空格 */
+    void move(int srcOff, int srcLen, int dstOff, int dstLen) {
+        int n = Math.min(srcLen, dstLen);
+        copy(srcOff, dstOff, n);
+        if (n < dstLen) fill(dstOff + n, dstLen - n, SPACE);
+    }
+
+    /** 堆内后端：一个 byte[]，热点操作直接访问数组 */
+    static final class Heap extends Storage {
+        private final byte[] bytes;
+
+        Heap(int size) { this.bytes = new byte[size]; }
+
+        @Override int size() { return bytes.length; }
+        @Override byte get(int off) { return bytes[off]; }
+        @Override void set(int off, byte b) { bytes[off] = b; }
+        @Override void fill(int off, int len, byte b) { Arrays.fill(bytes, off, off + len, b); }
+        @Override void write(int off, byte[] src, int srcOff, int len) { System.arraycopy(src, srcOff, bytes, off, len); }
+        @Override void read(int off, byte[] dst, int dstOff, int len) { System.arraycopy(bytes, off, dst, dstOff, len); }
+        @Override void copy(int srcOff, int dstOff, int len) { System.arraycopy(bytes, srcOff, bytes, dstOff, len); }
+
+        @Override long getZoned(int off, int len) {
+            long v = 0;
+            int end = off + len;
+            for (int i = off; i < end; i++) v = v * 10 + (bytes[i] & 0x0F);
+            return (bytes[end - 1] & 0xF0) == 0x70 ? -v : v;
+        }
+
+        @Override void putZoned(int off, int len, boolean signed, long value) {
+            encodeZoned(bytes, off, len, signed, value);
+        }
+
+        @Override long getBinary(int off, int len, boolean bigEndian) { return decodeBinary(bytes, off, len, bigEndian); }
+
+        @Override void putBinary(int off, int len, boolean bigEndian, long value) {
+            encodeBinary(bytes, off, len, bigEndian, value);
+        }
+
+        @Override boolean matches(int off, int len, byte[] classes, int mask) {
+            for (int i = off; i < off + len; i++) {
+                if ((classes[bytes[i] & 0xFF] & mask) == 0) return false;
+            }
+            return true;
+        }
+
+        @Override String getString(int off, int len) { return new String(bytes, off, len, CHARSET); }
+    }
+
+    /** 堆外后端：直接内存，close() 时立即释放 */
+    static final class OffHeap extends Storage {
+        private static final int FILL_CHUNK = 4096;
+        private ByteBuffer buf;         // 大端
+        private ByteBuffer nativeView;  // 同一块内存的本机字节序视图，供 COMP-5 使用
+
+        OffHeap(int size) {
+            this.buf = ByteBuffer.allocateDirect(size);
+            this.nativeView = buf.duplicate().order(ByteOrder.nativeOrder());
+        }
+
+        @Override int size() { return buf.capacity(); }
+        @Override byte get(int off) { return buf.get(off); }
+        @Override void set(int off, byte b) { buf.put(off, b); }
+        @Override void write(int off, byte[] src, int srcOff, int len) { buf.put(off, src, srcOff, len); }
+        @Override void read(int off, byte[] dst, int dstOff, int len) { buf.get(off, dst, dstOff, len); }
+        @Override void copy(int srcOff, int dstOff, int len) { buf.put(dstOff, buf, srcOff, len); }
+
+        @Override long getBinary(int off, int len, boolean bigEndian) {
+            ByteBuffer b = bigEndian ? buf : nativeView;
+            return switch (len) {
+                case 2 -> b.getShort(off);
+                case 4 -> b.getInt(off);
+                default -> b.getLong(off);
+            };
+        }
+
+        @Override void putBinary(int off, int len, boolean bigEndian, long value) {
+            ByteBuffer b = bigEndian ? buf : nativeView;
+            switch (len) {
+                case 2 -> b.putShort(off, (short) value);
+                case 4 -> b.putInt(off, (int) value);
+                default -> b.putLong(off, value);
+            }
+        }
+
+        @Override void fill(int off, int len, byte b) {
+            if (len <= 16) {
+                for (int i = 0; i < len; i++) buf.put(off + i, b);
+                return;
+            }
+            byte[] chunk = new byte[Math.min(len, FILL_CHUNK)];
+            Arrays.fill(chunk, b);
+            for (int done = 0; done < len; done += chunk.length)
+                buf.put(off + done, chunk, 0, Math.min(chunk.length, len - done));
+        }
+
+        @Override public void close() {
+            ByteBuffer b = buf;
+            if (b == null) return;
+            buf = null;
+            nativeView = null;
+            Cleaner.free(b);
+        }
+    }
+
+    /**
+     * 立即释放直接内存。JDK 17 没有公开的释放接口（Arena 要到 JDK 22），
+     * 这里通过 jdk.unsupported 中的 Unsafe.invokeCleaner；不可用时交给 GC 回收。
+     */
+    private static final class Cleaner {
+        private static final Object UNSAFE;
+        private static final Method INVOKE_CLEANER;
+        static {
+            Object unsafe = null;
+            Method invoke = null;
+            try {
+                Class<?> c = Class.forName("sun.misc.Unsafe");
+                Field f = c.getDeclaredField("theUnsafe");
+                f.setAccessible(true);
+                unsafe = f.get(null);
+                invoke = c.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                unsafe = null;
+                invoke = null;
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invoke;
+        }
+
+        static void free(ByteBuffer b) {
+            if (INVOKE_CLEANER == null) return;
+            try { INVOKE_CLEANER.invoke(UNSAFE, b); }
+            catch (ReflectiveOperationException ignored) {}
+        }
+    }
+}
@@ -1,6 +1,13 @@
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class main {
@@ -31,14 +38,98 @@ public class main {
             out.forEach(System.out::println);
             return;
         }
-        String filePath = args[0];
+        // --off-heap：WORKING-STORAGE 放在堆外内存（适合很大的 OCCURS 表）
+        // --bytecode：编译成 JVM 字节码执行
+        // --cache 目录：编译结果缓存在该目录中，同样的源码再次运行时跳过解析
+        // --fixed：源码为固定格式（1-6 列序号、7 列指示符、73 列之后的标识）
+        // --copy 目录：COPY 在该目录中查找成员，可以给多次
+        // --mmap：源文件映射到内存，直接从映射的字节做词法分析（适合很大的程序）
+        // --ebcdic：源文件为 EBCDIC（IBM037）编码，按字节查表读取
+        // --batch 文件：每行一个输入（多个 ACCEPT 值用制表符分隔），程序编译一次、对每行各运行一次
+        // --jobs N：批量运行时同时运行的个数，默认为 CPU 数
+        boolean offHeap = false, bytecode = false, fixed = false, mmap = false, ebcdic = false;
+        String cacheDir = null, batchFile = null;
+        List<Path> copyDirs = new ArrayList<>();
+        int jobs = Runtime.getRuntime().availableProcessors();
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            String option = args[i];
+            if (option.equals("--off-heap")) offHeap = true;
+            else if (option.equals("--bytecode")) bytecode = true;
+            else if (option.equals("--fixed")) fixed = true;
+            else if (option.equals("--mmap")) mmap = true;
+            else if (option.equals("--ebcdic")) ebcdic = true;
+            else if (!option.equals("--cache") && !option.equals("--copy")
+                    && !option.equals("--batch") && !option.equals("--jobs")) {
+                usage("未知的选项 " + option);
+                return;
+            } else if (i + 1 >= args.length) {
+                usage(option + " 缺少参数");
+                return;
+            } else if (option.equals("--cache")) cacheDir = args[++i];
+            else if (option.equals("--copy")) copyDirs.add(Paths.get(args[++i]));
+            else if (option.equals("--batch")) batchFile = args[++i];
+            else {
+                String n = args[++i];
+                try {
+                    jobs = Integer.parseInt(n);
+                } catch (NumberFormatException e) {
+                    jobs = 0;
+                }
+                if (jobs < 1) {
+                    usage("--jobs 需要正整数: " + n);
+                    return;
+                }
+            }
+        }
+        if (i >= args.length) {
+            usage("缺少 COBOL 文件路径");
+            return;
+        }
+        String filePath = args[i];
         try {
-            List<String> lines = Files.readAllLines(Paths.get(filePath));
+            Path source = Paths.get(filePath);
             CobolInterpreter interp = new CobolInterpreter();
-            List<String> out = interp.run(lines);
-            out.forEach(System.out::println);
+            interp.setOffHeap(offHeap);
+            interp.setBytecode(bytecode);
+            interp.setFixedFormat(fixed);
+            interp.setMemoryMapped(mmap);
+            interp.setEbcdic(ebcdic);
+            if (!copyDirs.isEmpty()) interp.setCopybookLibrary(new CopybookLibrary(copyDirs));
+            if (cacheDir != null) interp.setCacheDir(Paths.get(cacheDir));
+            if (batchFile != null) {
+                List<List<String>> inputs = new ArrayList<>();
+                for (String line : Files.readAllLines(Paths.get(batchFile))) {
+                    inputs.add(Arrays.asList(line.split("\t", -1)));
+                }
+                List<List<String>> results = interp.runBatch(source, inputs, jobs);
+                for (int n = 0; n < results.size(); n++) {
+                    System.out.println("==> 输入 " + (n + 1));
+                    results.get(n).forEach(System.out::println);
+                }
+                return;
+            }
+            // 边运行边输出：DISPLAY 的各行写入 64KB 缓冲区，满了才写到标准输出，结束时刷新；
+            // 在终端上交互运行时每行刷新，ACCEPT 等待输入前能看到提示
+            PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                    System.console() != null);
+            try {
+                interp.runFile(source, out::println);
+            } finally {
+                out.flush();
+            }
         } catch (IOException e) {
             System.err.println("❌ 读取文件失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
+
+    /** 参数错误：原因与用法写到标准错误，退出码 2 */
+    private static void usage(String reason) {
+        System.err.println("❌ " + reason);
+        System.err.println("用法: main [--off-heap] [--bytecode] [--fixed] [--mmap] [--ebcdic] [--cache 目录] "
+                + "[--copy 目录]... [--batch 文件] [--jobs N] COBOL文件");
+        System.exit(2);
+    }
 }
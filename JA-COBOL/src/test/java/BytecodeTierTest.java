@@ -0,0 +1,24 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * 差分测试：解释器是参照，字节码层（及堆外记录上的字节码层）的输出必须与它相同。
+ * 字节码层不能编译时 bytecode() 为 null，测试失败并给出原因，不会悄悄退回解释器
+ */
+class BytecodeTierTest {
+    @ParameterizedTest
+    @ValueSource(strings = {"arith", "verbs", "nested-if", "records", "tables", "packed", "binary", "expr", "flow",
+            "dynamic", "loops", "conds", "evaluate", "forever"})
+    void bytecodeMatchesInterpreter(String name) {
+        CobolProgram program = CobolProgram.compile(Programs.lines(name));
+        List<String> expected = Programs.run(program, false);
+        assertNotNull(program.bytecode(), () -> name + ": " + program.bytecodeFailure());
+        assertEquals(expected, Programs.run(program, true), name);
+        assertEquals(expected, new CobolRun(program, true, Collections.emptyIterator()).run(true), name + " (off-heap)");
+    }
+}
@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** 批量运行：结果按输入的顺序，每次运行有自己的 ACCEPT 输入与记录，同时运行的个数不超过 concurrency */
+class CobolBatchTest {
+    // K 是声明的字段，TAG 未声明：两者都不能带到下一次运行
+    private static final List<String> LINES = """
+            IDENTIFICATION DIVISION.
+            PROGRAM-ID. BATCH.
+            DATA DIVISION.
+            WORKING-STORAGE SECTION.
+            01 K PIC 9(5) VALUE 0.
+            01 N PIC 9(9) VALUE 0.
+            PROCEDURE DIVISION.
+                ACCEPT K.
+                ACCEPT TAG.
+                PERFORM K TIMES
+                    ADD K TO N
+                END-PERFORM.
+                DISPLAY TAG ':' N.
+                STOP RUN.
+            """.lines().toList();
+
+    /** 第 i 次运行的输入：i 与 RUN-i，每 5 次少给一行（ACCEPT 读到空行） */
+    private static List<List<String>> inputs(int n) {
+        List<List<String>> inputs = new ArrayList<>();
+        for (int i = 0; i < n; i++) inputs.add(i % 5 == 4 ? List.of(Integer.toString(i)) : List.of(Integer.toString(i), "RUN-" + i));
+        return inputs;
+    }
+
+    private static void assertResults(int n, List<List<String>> results) {
+        assertEquals(n, results.size());
+        for (int i = 0; i < n; i++) assertEquals(List.of((i % 5 == 4 ? "" : "RUN-" + i) + ":" + i * i), results.get(i), "run " + i);
+    }
+
+    @Test
+    void resultsFollowInputOrderAndRunsAreIsolated() throws InterruptedException {
+        CobolInterpreter interp = new CobolInterpreter();
+        assertResults(40, interp.runBatch(LINES, inputs(40), 3));
+        interp.setBytecode(true);
+        assertResults(40, interp.runBatch(LINES, inputs(40), 3));
+    }
+
+    @Test
+    void compileErrorIsReportedForEveryInput() throws InterruptedException {
+        List<List<String>> results = new CobolInterpreter().runBatch(
+                List.of("PROCEDURE DIVISION.", "    FOO BAR."), inputs(3), 2);
+        assertEquals(List.of(List.of("ERROR: NOT A STATEMENT: FOO BAR"), List.of("ERROR: NOT A STATEMENT: FOO BAR"),
+                List.of("ERROR: NOT A STATEMENT: FOO BAR")), results);
+    }
+
+    /**
+     * 固定大小的线程池（没有虚拟线程时的退路）与不限线程数的 executor（同每个输入一个虚拟线程）
+     * 上同时运行的个数都不超过 concurrency
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void concurrencyIsLimitedOnAnyExecutor(boolean fixedPool) throws InterruptedException {
+        int concurrency = 3, n = 24;
+        AtomicInteger active = new AtomicInteger(), max = new AtomicInteger();
+        List<List<String>> inputs = new ArrayList<>();
+        for (List<String> input : inputs(n)) inputs.add(slow(input, active, max));
+        CobolBatch batch = new CobolBatch(CobolProgram.compile(LINES));
+        batch.setConcurrency(concurrency);
+        ExecutorService executor = fixedPool ? Executors.newFixedThreadPool(concurrency) : Executors.newCachedThreadPool();
+        assertResults(n, batch.run(inputs, executor));
+        assertTrue(max.get() <= concurrency, () -> max.get() + " runs at once");
+        assertTrue(max.get() > 1, "runs overlap");
+    }
+
+    /** 每次 ACCEPT 都停一下，并记录同时处在 ACCEPT 中的运行个数 */
+    private static List<String> slow(List<String> lines, AtomicInteger active, AtomicInteger max) {
+        return new AbstractList<>() {
+            @Override public String get(int i) { return lines.get(i); }
+            @Override public int size() { return lines.size(); }
+            @Override public Iterator<String> iterator() {
+                Iterator<String> it = lines.iterator();
+                return new Iterator<>() {
+                    @Override public boolean hasNext() { return it.hasNext(); }
+                    @Override public String next() {
+                        max.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        try {
+                            Thread.sleep(20);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            active.decrementAndGet();
+                        }
+                        return it.next();
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/** 同一个 CobolProgram 在多个线程上同时运行：自特化节点的状态属于各自的 CobolRun，互不影响 */
+class ConcurrencyTest {
+    // V、W 未声明，值是整数还是文本取决于 ACCEPT 的输入，MOVE / ADD / 条件按看到的类型特化
+    private static final CobolProgram PROGRAM = CobolProgram.compile("""
+            IDENTIFICATION DIVISION.
+            PROGRAM-ID. SPEC.
+            DATA DIVISION.
+            WORKING-STORAGE SECTION.
+            01 N PIC 9(5) VALUE 0.
+            01 I PIC 9(5) VALUE 0.
+            PROCEDURE DIVISION.
+                ACCEPT V.
+                PERFORM STEP 200 TIMES.
+                DISPLAY W.
+                DISPLAY N.
+                STOP RUN.
+            STEP.
+                MOVE V TO W.
+                ADD 1 TO I.
+                IF V = 'ABC'
+                  MOVE I TO N
+                ELSE
+                  ADD V TO N
+                END-IF.
+            """.lines().toList());
+
+    private static List<String> run(String input, boolean bytecode) {
+        return new CobolRun(PROGRAM, false, List.of(input).iterator()).run(bytecode);
+    }
+
+    @Test
+    void runsWithDifferentValueTypesDoNotShareSpecialization() throws Exception {
+        List<String> number = List.of("3", "600"), text = List.of("ABC", "200");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> numbers = new ArrayList<>(), texts = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                boolean bytecode = i % 4 == 0;
+                numbers.add(pool.submit(() -> run("3", bytecode)));
+                texts.add(pool.submit(() -> run("ABC", bytecode)));
+            }
+            for (Future<List<String>> f : numbers) assertEquals(number, f.get());
+            for (Future<List<String>> f : texts) assertEquals(text, f.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void laterRunStartsUnspecialized() {
+        // 前一次运行看到的是文本，不影响下一次运行按整数特化
+        assertEquals(List.of("ABC", "200"), run("ABC", false));
+        assertEquals(List.of("3", "600"), run("3", false));
+        assertEquals(List.of("ABC", "200"), run("ABC", false));
+    }
+}
@@ -0,0 +1,93 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/** 条件：组合、省略主语、文字形式的关系运算符、类别与符号条件；解释器与字节码层结果相同 */
+class ConditionTest {
+    private static final String PROGRAM = """
+            IDENTIFICATION DIVISION.
+            PROGRAM-ID. COND.
+            DATA DIVISION.
+            WORKING-STORAGE SECTION.
+            01 A PIC 9(3) VALUE 5.
+            01 B PIC 9(3) VALUE 10.
+            01 S PIC S9(3) VALUE -4.
+            01 T PIC X(6) VALUE 'AB'.
+            01 L PIC X(4) VALUE 'ab'.
+            01 D PIC X(4) VALUE '0123'.
+            01 P PIC S9(5) COMP-3 VALUE 250.
+            PROCEDURE DIVISION.
+                IF %s
+                    DISPLAY 'T'
+                ELSE
+                    DISPLAY 'F'
+                END-IF.
+                STOP RUN.
+            """;
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            "A < B                                  | T",
+            "A = 5 AND B = 10                       | T",
+            "A = 5 AND B = 11                       | F",
+            "A = 6 OR B = 10                        | T",
+            "NOT A = 5                              | F",
+            "NOT (A = 6 OR B = 11)                  | T",
+            "A = 6 OR B = 10 AND A = 6              | F",
+            "(A = 6 OR B = 10) AND A = 5            | T",
+            // 省略主语（与运算符）
+            "B > A AND < 20                         | T",
+            "B > A AND < 8                          | F",
+            "A = 1 OR 2 OR 5                        | T",
+            "A = 1 OR 2 OR 3                        | F",
+            "A NOT = 1 AND 2                        | T",
+            // 文字形式
+            "A IS GREATER THAN 4                    | T",
+            "A IS NOT LESS THAN 5                   | T",
+            "A IS GREATER THAN OR EQUAL TO 6        | F",
+            "B IS EQUAL TO 10                       | T",
+            "A LESS B                               | T",
+            // 类别与符号
+            "D IS NUMERIC                           | T",
+            "T IS NUMERIC                           | F",
+            "T IS ALPHABETIC                        | T",
+            "L IS ALPHABETIC-LOWER                  | T",
+            "L IS ALPHABETIC-UPPER                  | F",
+            "T IS NOT ALPHABETIC-LOWER              | T",
+            "S IS NEGATIVE                          | T",
+            "S IS NOT POSITIVE                      | T",
+            "A IS NOT ZERO                          | T",
+            "S IS ZERO                              | F",
+            // 文本比较时较短的一边补空格，ZERO 是数值常量
+            "T = 'AB'                               | T",
+            "T < 'AC'                               | T",
+            "A > ZERO                               | T",
+            // COMP-3 与 COMP-3 常量直接比较
+            "P > 249                                | T",
+            "P = 250 AND P < 300                    | T",
+    })
+    void condition(String condition, String expected) {
+        assertEquals(List.of(expected), Programs.runBothTiers(PROGRAM.formatted(condition)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            "A >                                    | INVALID CONDITION: A >",
+            "A = 5 AND                              | INVALID CONDITION: A = 5 AND",
+            "A = 5 OR NOT                           | INVALID CONDITION: A = 5 OR NOT",
+            "(A = 5 OR B = 10                       | INVALID CONDITION: ( A = 5 OR B = 10",
+            "A IS NUMERIC OR                        | INVALID CONDITION: A IS NUMERIC OR",
+            "A                                      | INVALID CONDITION: A",
+            "A = 5 B                                | UNEXPECTED TOKENS IN IF: B",
+            "A = 5) THEN                            | UNEXPECTED TOKENS IN IF: )",
+    })
+    void malformedConditionFailsAtCompileTime(String condition, String reported) {
+        // 不当作恒为假的条件，悄悄跳过 IF 的语句体
+        CobolInterpreter.CobolError e = assertThrows(CobolInterpreter.CobolError.class,
+                () -> CobolProgram.compile(PROGRAM.formatted(condition).lines().toList()));
+        assertEquals(reported, e.getMessage());
+    }
+}
@@ -0,0 +1,156 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** COPY / REPLACE：成员查找、REPLACING 的整记号与 :TAG: 替换、REPLACE OFF、嵌套 COPY 与成员缓存 */
+class CopybookLibraryTest {
+    @TempDir
+    Path dir;
+    private CopybookLibrary library;
+
+    @BeforeEach
+    void setUp() {
+        library = new CopybookLibrary(List.of(dir));
+    }
+
+    private void member(String file, String... lines) throws IOException {
+        Files.write(dir.resolve(file), List.of(lines));
+    }
+
+    private List<String> run(String... lines) {
+        return Programs.runBothTiers(CobolProgram.compile(List.of(lines), false, library));
+    }
+
+    @Test
+    void copyInDataAndProcedureDivisions() throws IOException {
+        member("CUSTREC.cpy", "01 CUST-NAME PIC X(5) VALUE 'ANN'.");
+        member("showname.cbl", "DISPLAY CUST-NAME.");
+        assertEquals(List.of("ANN  "), run(
+                "DATA DIVISION.",
+                "WORKING-STORAGE SECTION.",
+                "COPY CUSTREC.",
+                "PROCEDURE DIVISION.",
+                "    COPY SHOWNAME.",
+                "    STOP RUN."));
+    }
+
+    @Test
+    void replacingWholeTokensAndPseudoText() throws IOException {
+        member("REC.cpy", "01 NAME-1 PIC X(5) VALUE 'ANN'.");
+        assertEquals(List.of("BOB"), run(
+                "DATA DIVISION.",
+                "WORKING-STORAGE SECTION.",
+                "COPY REC REPLACING NAME-1 BY WS-NAME",
+                "    'ANN' BY 'BOB'",
+                "    ==PIC X(5)== BY ==PIC X(3)==.",
+                "PROCEDURE DIVISION.",
+                "    DISPLAY WS-NAME.",
+                "    STOP RUN."));
+    }
+
+    @Test
+    void tagReplacesPartOfAName() throws IOException {
+        member("TAGGED.cpy",
+                "01 :PFX:-ID PIC 9(3) VALUE 7.",
+                "01 :PFX:-CODE PIC X(2) VALUE 'AB'.");
+        assertEquals(List.of("7", "AB", "8", "CD"), run(
+                "DATA DIVISION.",
+                "WORKING-STORAGE SECTION.",
+                "COPY TAGGED REPLACING ==:PFX:== BY ==WS==.",
+                "COPY TAGGED REPLACING ==:PFX:== BY ==LS==.",
+                "PROCEDURE DIVISION.",
+                "    DISPLAY WS-ID.",
+                "    DISPLAY WS-CODE.",
+                "    MOVE 8 TO LS-ID.",
+                "    MOVE 'CD' TO LS-CODE.",
+                "    DISPLAY LS-ID.",
+                "    DISPLAY LS-CODE.",
+                "    STOP RUN."));
+    }
+
+    @Test
+    void replaceAppliesUntilReplaceOff() {
+        // REPLACE OFF 之后 MSG-1 是未声明的变量，DISPLAY 输出它的名字
+        assertEquals(List.of("ONE", "ONE", "MSG-1"), run(
+                "PROCEDURE DIVISION.",
+                "    REPLACE ==MSG-1== BY =='ONE'==.",
+                "    DISPLAY MSG-1.",
+                "    DISPLAY MSG-1.",
+                "    REPLACE OFF.",
+                "    DISPLAY MSG-1.",
+                "    STOP RUN."));
+    }
+
+    @Test
+    void laterReplaceSupersedesEarlierOne() {
+        assertEquals(List.of("A", "MSG-A", "B"), run(
+                "PROCEDURE DIVISION.",
+                "    REPLACE ==MSG-A== BY =='A'==.",
+                "    DISPLAY MSG-A.",
+                "    REPLACE ==MSG-B== BY =='B'==.",
+                "    DISPLAY MSG-A.",
+                "    DISPLAY MSG-B.",
+                "    STOP RUN."));
+    }
+
+    @Test
+    void nestedCopyAndReplacingOfTheOuterMember() throws IOException {
+        member("OUTER.cpy", "01 :P:-A PIC X(3) VALUE 'OUT'.", "COPY INNER.");
+        member("INNER.cpy", "01 :P:-B PIC X(3) VALUE 'IN'.");
+        // 外层的 REPLACING 作用于展开后的全部记号，包括内层成员的
+        assertEquals(List.of("OUT", "IN "), run(
+                "DATA DIVISION.",
+                "WORKING-STORAGE SECTION.",
+                "COPY OUTER REPLACING ==:P:== BY ==X==.",
+                "PROCEDURE DIVISION.",
+                "    DISPLAY X-A.",
+                "    DISPLAY X-B.",
+                "    STOP RUN."));
+    }
+
+    @Test
+    void missingAndRecursiveMembersAreErrors() throws IOException {
+        CobolInterpreter.CobolError missing = assertThrows(CobolInterpreter.CobolError.class,
+                () -> run("PROCEDURE DIVISION.", "    COPY NOPE.", "    STOP RUN."));
+        assertEquals("COPYBOOK NOT FOUND: NOPE", missing.getMessage());
+
+        member("LOOP.cpy", "COPY LOOP.");
+        CobolInterpreter.CobolError loop = assertThrows(CobolInterpreter.CobolError.class,
+                () -> run("PROCEDURE DIVISION.", "    COPY LOOP.", "    STOP RUN."));
+        assertEquals("COPY NESTED TOO DEEPLY: LOOP", loop.getMessage());
+    }
+
+    @Test
+    void membersAreCachedUntilTheFileChanges() throws IOException {
+        member("CACHED.cpy", "DISPLAY 'V1'.");
+        CopybookLibrary.Member first = library.member("CACHED", false);
+        assertSame(first, library.member("CACHED", false));
+        assertEquals(List.of("V1"), run("PROCEDURE DIVISION.", "    COPY CACHED.", "    STOP RUN."));
+
+        member("CACHED.cpy", "DISPLAY 'V2'.");
+        Files.setLastModifiedTime(dir.resolve("CACHED.cpy"), FileTime.fromMillis(first.modified + 2000));
+        CopybookLibrary.Member second = library.member("CACHED", false);
+        assertNotSame(first, second);
+        assertEquals(List.of("V2"), run("PROCEDURE DIVISION.", "    COPY CACHED.", "    STOP RUN."));
+    }
+
+    @Test
+    void fixedAndFreeFormatAreCachedSeparately() throws IOException {
+        member("BOTH.cpy", "       01 B PIC X(3) VALUE 'BTH'.");
+        CopybookLibrary.Member free = library.member("BOTH", false), fixed = library.member("BOTH", true);
+        assertNotSame(free, fixed);
+        // 交替使用两种格式时各自命中缓存，不会重新分析
+        assertSame(free, library.member("BOTH", false));
+        assertSame(fixed, library.member("BOTH", true));
+    }
+}
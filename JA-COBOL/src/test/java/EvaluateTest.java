@@ -0,0 +1,138 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/** EVALUATE：CaseTable 的三种查找（密集整数、稀疏整数、文本）与整个语句的选择结果 */
+class EvaluateTest {
+    @Test
+    void denseKeysIndexByValue() {
+        // 分支 1 是 ANY 之类的非常量对象，每个键的候选都包含它
+        CaseTable table = CaseTable.build(new Object[] {3L, null, 5L, 3L, -1L});
+        assertArrayEquals(new int[] {0, 1, 3}, table.get(3));
+        assertArrayEquals(new int[] {1, 2}, table.get(5));
+        assertArrayEquals(new int[] {1, 4}, table.get(-1));
+        assertArrayEquals(new int[] {1}, table.get(4));
+        assertArrayEquals(new int[] {1}, table.get(Long.MAX_VALUE));
+        assertArrayEquals(new int[] {1}, table.fallback());
+    }
+
+    @Test
+    void sparseKeysUseHashTable() {
+        Object[] keys = new Object[40];
+        for (int i = 0; i < keys.length; i++) keys[i] = (long) i * 1_000_003L - 7;
+        CaseTable table = CaseTable.build(keys);
+        for (int i = 0; i < keys.length; i++) assertArrayEquals(new int[] {i}, table.get((Long) keys[i]));
+        assertArrayEquals(new int[0], table.get(1));
+        assertArrayEquals(new int[] {0}, CaseTable.build(new Object[] {Long.MIN_VALUE, Long.MAX_VALUE}).get(Long.MIN_VALUE));
+    }
+
+    @Test
+    void textKeysAndNoConstants() {
+        CaseTable table = CaseTable.build(new Object[] {"RED", "GREEN", null, "RED"});
+        assertArrayEquals(new int[] {0, 2, 3}, table.get("RED"));
+        assertArrayEquals(new int[] {2}, table.get("BLUE"));
+        assertNull(CaseTable.build(new Object[] {null, null}));
+    }
+
+    private static List<String> evaluate(String declarations, String evaluate, String... values) {
+        StringBuilder source = new StringBuilder("""
+                IDENTIFICATION DIVISION.
+                PROGRAM-ID. EVAL.
+                DATA DIVISION.
+                WORKING-STORAGE SECTION.
+                """).append(declarations).append("PROCEDURE DIVISION.\n");
+        for (String v : values) source.append("    MOVE ").append(v).append(" TO X.\n    PERFORM CHECK.\n");
+        source.append("    STOP RUN.\nCHECK.\n").append(evaluate);
+        return Programs.runBothTiers(source.toString());
+    }
+
+    @Test
+    void numericSubjectWithSparseKeysRangesAndSharedBodies() {
+        List<String> out = evaluate("01 X PIC S9(7).\n", """
+                    EVALUATE X
+                        WHEN 1
+                        WHEN 2
+                            DISPLAY 'ONE-TWO'
+                        WHEN 1000000
+                            DISPLAY 'MILLION'
+                        WHEN -5
+                            DISPLAY 'MINUS'
+                        WHEN 10 THRU 20
+                            DISPLAY 'TEENS'
+                        WHEN NOT 0
+                            DISPLAY 'NONZERO'
+                        WHEN OTHER
+                            DISPLAY 'ZERO'
+                    END-EVALUATE.
+                """, "1", "2", "1000000", "-5", "15", "20", "21", "0");
+        assertEquals(List.of("ONE-TWO", "ONE-TWO", "MILLION", "MINUS", "TEENS", "TEENS", "NONZERO", "ZERO"), out);
+    }
+
+    @Test
+    void textSubjectComparesWithTrailingSpaces() {
+        List<String> out = evaluate("01 X PIC X(6).\n", """
+                    EVALUATE X
+                        WHEN 'RED'
+                            DISPLAY 'STOP'
+                        WHEN 'GREEN'
+                            DISPLAY 'GO'
+                        WHEN OTHER
+                            DISPLAY 'WAIT'
+                    END-EVALUATE.
+                """, "'RED'", "'GREEN'", "'AMBER'");
+        assertEquals(List.of("STOP", "GO", "WAIT"), out);
+    }
+
+    @Test
+    void evaluateTrueAndAlso() {
+        List<String> out = evaluate("01 X PIC 9(3).\n01 Y PIC 9(3) VALUE 7.\n", """
+                    EVALUATE TRUE ALSO Y
+                        WHEN X < 10 ALSO 7
+                            DISPLAY 'SMALL-7'
+                        WHEN X < 10 ALSO ANY
+                            DISPLAY 'SMALL'
+                        WHEN X > 100 ALSO 1 THRU 9
+                            DISPLAY 'BIG'
+                        WHEN OTHER
+                            DISPLAY 'MIDDLE'
+                    END-EVALUATE.
+                """, "3", "500", "50");
+        assertEquals(List.of("SMALL-7", "BIG", "MIDDLE"), out);
+    }
+
+    @Test
+    void manyArmsSelectTheFirstMatch() {
+        StringBuilder evaluate = new StringBuilder("    EVALUATE X\n");
+        List<String> values = new ArrayList<>(), expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            evaluate.append("        WHEN ").append(i * 7).append("\n            DISPLAY 'ARM").append(i).append("'\n");
+            values.add(Integer.toString(i * 7));
+            expected.add("ARM" + i);
+        }
+        evaluate.append("        WHEN 7\n            DISPLAY 'UNREACHABLE'\n    END-EVALUATE.\n");
+        assertEquals(expected, evaluate("01 X PIC 9(5).\n", evaluate.toString(), values.toArray(new String[0])));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            "EVALUATE TRUE;WHEN X >                 | INVALID CONDITION: X >",
+            "EVALUATE TRUE;WHEN X = 5 AND           | INVALID CONDITION: X = 5 AND",
+            "EVALUATE TRUE;WHEN X = 5 Y             | UNEXPECTED TOKENS IN WHEN: Y",
+            "EVALUATE X <;WHEN TRUE                 | INVALID CONDITION: X <",
+    })
+    void malformedConditionFailsAtCompileTime(String header, String reported) {
+        // 不建成永远不匹配的 WHEN，悄悄落到 WHEN OTHER
+        String[] lines = header.split(";");
+        CobolInterpreter.CobolError e = assertThrows(CobolInterpreter.CobolError.class,
+                () -> evaluate("01 X PIC 9(3).\n", "    " + lines[0] + "\n        " + lines[1]
+                        + "\n            DISPLAY 'W'\n        WHEN OTHER\n            DISPLAY 'OTHER'\n    END-EVALUATE.\n", "5"));
+        assertEquals(reported, e.getMessage());
+    }
+}
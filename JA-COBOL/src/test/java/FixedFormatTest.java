@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** 固定格式：1-6 列序号、7 列指示符、8-72 列正文、73 列之后的标识，续行与注释行 */
+class FixedFormatTest {
+    private static final int AREA = 65;     // 8-72 列
+
+    /** 一行固定格式源码：序号、指示符、正文（补空格到 72 列）、标识区 */
+    private static String line(int seq, char indicator, String text) {
+        if (text.length() > AREA) throw new IllegalArgumentException(text);
+        return String.format("%06d%c%-" + AREA + "sIDENT%03d", seq, indicator, text, seq);
+    }
+
+    private static List<String> run(String... body) {
+        List<String> lines = new ArrayList<>();
+        String[] head = {
+                "IDENTIFICATION DIVISION.",
+                "PROGRAM-ID. FIXED.",
+                "DATA DIVISION.",
+                "WORKING-STORAGE SECTION.",
+                "01 N PIC 9(6) VALUE 0.",
+                "PROCEDURE DIVISION."};
+        for (String h : head) lines.add(line(lines.size() + 1, ' ', h));
+        for (String b : body) lines.add(line(lines.size() + 1, b.charAt(0), b.substring(1)));
+        return Programs.runBothTiers(CobolProgram.compile(lines, true));
+    }
+
+    @Test
+    void sequenceAndIdentificationAreasAreIgnored() {
+        // 标识区紧跟在 72 列之后，不能与正文的最后一个记号连在一起
+        String full = "    MOVE 7 TO" + " ".repeat(AREA - 14) + "N";
+        assertEquals(AREA, full.length());
+        assertEquals(List.of("7"), run(
+                " " + full,
+                "     DISPLAY N.",
+                "     STOP RUN."));
+    }
+
+    @Test
+    void commentAndDebugLinesAreSkipped() {
+        assertEquals(List.of("A", "B"), run(
+                "     DISPLAY 'A'.",
+                "*    DISPLAY 'COMMENT'.",
+                "/    DISPLAY 'PAGE'.",
+                "D    DISPLAY 'DEBUG'.",
+                "d    DISPLAY 'DEBUG'.",
+                "     DISPLAY 'B'.",
+                "     STOP RUN."));
+    }
+
+    @Test
+    void unknownIndicatorIsAnError() {
+        CobolInterpreter.CobolError e = assertThrows(CobolInterpreter.CobolError.class, () -> run(
+                "     DISPLAY 'A'.",
+                "X    DISPLAY 'B'.",
+                "     STOP RUN."));
+        assertEquals("INVALID INDICATOR 'X' IN LINE 8", e.getMessage());
+    }
+
+    @Test
+    void freeFormatSourceReadAsFixedIsAnError() {
+        // 自由格式的源码按固定格式读时第 7 列是正文，不能悄悄丢掉部头、什么也不输出
+        CobolInterpreter.CobolError e = assertThrows(CobolInterpreter.CobolError.class, () -> CobolProgram.compile(List.of(
+                "IDENTIFICATION DIVISION.",
+                "PROGRAM-ID. FREE.",
+                "PROCEDURE DIVISION.",
+                "    DISPLAY 'HI'.",
+                "    STOP RUN."), true));
+        assertEquals("INVALID INDICATOR 'F' IN LINE 1", e.getMessage());
+    }
+
+    @Test
+    void continuedLiteralKeepsBlanksToColumn72() {
+        String first = "    DISPLAY 'ABCDEF";
+        assertEquals(List.of("ABCDEF" + " ".repeat(AREA - first.length()) + "GHI"), run(
+                " " + first,
+                "-        'GHI'.",
+                "     STOP RUN."));
+    }
+
+    @Test
+    void continuedWordJoinsWithoutBlanks() {
+        assertEquals(List.of("1234", "1235"), run(
+                "     MOVE 12",
+                "-        34 TO N.",
+                "     DISPLAY N.",
+                "     ADD 1 TO N.",
+                "     DIS",
+                "-        PLAY N.",
+                "     STOP RUN."));
+    }
+
+    @Test
+    void commentLineBetweenContinuationsIsSkipped() {
+        String first = "    DISPLAY 'ONE";
+        assertEquals(List.of("ONE" + " ".repeat(AREA - first.length()) + "TWO"), run(
+                " " + first,
+                "*    NOT PART OF THE LITERAL",
+                "-        'TWO'.",
+                "     STOP RUN."));
+    }
+
+    @Test
+    void crlfLineEndingsAreAccepted() {
+        List<String> lines = List.of(
+                line(1, ' ', "PROCEDURE DIVISION.") + "\r",
+                line(2, ' ', "    DISPLAY 'CRLF'.") + "\r",
+                line(3, ' ', "    STOP RUN.") + "\r");
+        assertEquals(List.of("CRLF"), Programs.run(CobolProgram.compile(lines, true), false));
+    }
+}
@@ -0,0 +1,163 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/** 程序计数器与 PERFORM 栈：GO TO、PERFORM THRU、段落贯穿，按标准 COBOL 的结果 */
+class FlowTest {
+    private static List<String> run(String procedure) {
+        String source = """
+                IDENTIFICATION DIVISION.
+                PROGRAM-ID. FLOW.
+                DATA DIVISION.
+                WORKING-STORAGE SECTION.
+                01 I PIC 9(7) VALUE 0.
+                PROCEDURE DIVISION.
+                """ + procedure;
+        return Programs.runBothTiers(source);
+    }
+
+    @Test
+    void paragraphsFallThrough() {
+        assertEquals(List.of("A", "B", "C"), run("""
+                A.
+                    DISPLAY 'A'.
+                B.
+                    DISPLAY 'B'.
+                C.
+                    DISPLAY 'C'.
+                """));
+    }
+
+    @Test
+    void goToOutOfPerformedParagraphDoesNotReturn() {
+        // P3 的结尾不是 PERFORM P1 的返回点，贯穿到程序末尾
+        assertEquals(List.of("P1", "P3"), run("""
+                MAIN.
+                    PERFORM P1.
+                    DISPLAY 'RETURNED'.
+                    STOP RUN.
+                P1.
+                    DISPLAY 'P1'.
+                    GO TO P3.
+                P2.
+                    DISPLAY 'P2'.
+                P3.
+                    DISPLAY 'P3'.
+                """));
+    }
+
+    @Test
+    void performThruReturnsAfterLastParagraph() {
+        assertEquals(List.of("A", "C", "A", "C", "A", "C", "END"), run("""
+                MAIN.
+                    PERFORM A THRU C 2 TIMES.
+                    PERFORM A THROUGH C.
+                    DISPLAY 'END'.
+                    STOP RUN.
+                A.
+                    DISPLAY 'A'.
+                    GO TO C.
+                B.
+                    DISPLAY 'B'.
+                C.
+                    DISPLAY 'C'.
+                D.
+                    DISPLAY 'NOT REACHED'.
+                """));
+    }
+
+    @Test
+    void goToLoopRunsInConstantStack() {
+        assertEquals(List.of("500000", "DONE"), run("""
+                PING.
+                    ADD 1 TO I.
+                    IF I < 500000
+                        GO TO PONG
+                    END-IF.
+                    GO TO FINISH.
+                PONG.
+                    GOTO PING.
+                FINISH.
+                    DISPLAY I.
+                    DISPLAY 'DONE'.
+                    STOP RUN.
+                """));
+    }
+
+    @Test
+    void performInsidePerformedRange() {
+        assertEquals(List.of("OUTER", "INNER", "OUTER-END", "MAIN-END"), run("""
+                MAIN.
+                    PERFORM OUTER.
+                    DISPLAY 'MAIN-END'.
+                    STOP RUN.
+                OUTER.
+                    DISPLAY 'OUTER'.
+                    PERFORM INNER.
+                    DISPLAY 'OUTER-END'.
+                INNER.
+                    DISPLAY 'INNER'.
+                """));
+    }
+
+    @Test
+    void runawayRecursivePerformStopsWithError() {
+        assertEquals(List.of("ERROR: PERFORM NESTED TOO DEEPLY"), Programs.run("""
+                IDENTIFICATION DIVISION.
+                PROGRAM-ID. LOOP.
+                PROCEDURE DIVISION.
+                AGAIN.
+                    PERFORM AGAIN.
+                """));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            "PERFORM VARYING I FROM 1 BY STPE UNTIL I > 5   | BY STPE IS NEVER SET",
+            "PERFORM VARYING I FROM 1 BY UNTIL I > 5        | BY",
+            "PERFORM VARYING I FROM ) BY 1 UNTIL I > 5      | FROM )",
+            "PERFORM VARYING I FROM 1 BY 99999999999999999999 UNTIL I > 5 | BY 99999999999999999999",
+            "PERFORM NTIMES TIMES                           | TIMES NTIMES IS NEVER SET",
+    })
+    void badPerformOperandFailsAtCompileTime(String statement, String reported) {
+        // 按 0 处理时 BY 0 的循环不会结束
+        CobolInterpreter.CobolError e = assertThrows(CobolInterpreter.CobolError.class,
+                () -> run("    " + statement + "\n        DISPLAY I\n    END-PERFORM.\n    STOP RUN.\n"));
+        assertEquals("INVALID PERFORM OPERAND: " + reported, e.getMessage());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            "PERFORM (5 / I) TIMES                                  | BEFORE",
+            "PERFORM VARYING I FROM (5 / I) BY 1 UNTIL I > 3        | BEFORE",
+            "PERFORM VARYING I FROM 1 BY (1 / (I - 1)) UNTIL I > 3  | BEFORE;1",
+    })
+    void divideByZeroInPerformOperandStopsWithError(String statement, String before) {
+        // 与 COMPUTE 一样报 DIVIDE BY ZERO，不让 ArithmeticException 传到调用者
+        List<String> expected = new ArrayList<>(List.of(before.split(";")));
+        expected.add("ERROR: DIVIDE BY ZERO IN PERFORM");
+        assertEquals(expected, run("""
+                    DISPLAY 'BEFORE'.
+                    %s
+                        DISPLAY I
+                    END-PERFORM.
+                    DISPLAY 'NOT REACHED'.
+                """.formatted(statement)));
+    }
+
+    @Test
+    void performOperandMayBeUndeclaredVariableThatIsSet() {
+        assertEquals(List.of("1", "4", "7"), run("""
+                    MOVE 3 TO STP.
+                    PERFORM VARYING I FROM 1 BY STP UNTIL I > 8
+                        DISPLAY I
+                    END-PERFORM.
+                    STOP RUN.
+                """));
+    }
+}
@@ -0,0 +1,58 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** 内存映射的源码：含有 UTF-8 多字节字符的文件同样按字节分析，记号文本截取时才解码 */
+class MappedSourceTest {
+    @TempDir
+    Path dir;
+
+    private CharSequence open(String name, String... lines) throws IOException {
+        Path path = dir.resolve(name);
+        Files.write(path, List.of(lines));
+        return MappedSource.open(path, false);
+    }
+
+    private static List<String> run(CharSequence source, CopybookLibrary copybooks) {
+        return Programs.runBothTiers(CobolProgram.compile(source, false, copybooks));
+    }
+
+    @Test
+    void nonAsciiTextKeepsTheMapping() throws IOException {
+        CharSequence source = open("UTF8.cob",
+                "IDENTIFICATION DIVISION.",
+                "PROGRAM-ID. UTF8.",
+                "DATA DIVISION.",
+                "WORKING-STORAGE SECTION.",
+                "01 MSG PIC X(20).",
+                "PROCEDURE DIVISION.",
+                "*   注释：一个非 ASCII 字节也不会让整个文件被解码",
+                "    MOVE '价格 ≥ 5' TO MSG.",
+                "    DISPLAY MSG.",
+                "    DISPLAY '编号'.",
+                "    STOP RUN.");
+        assertTrue(MappedSource.utf8Bytes(source));
+        // 与解码成字符串的源码结果相同（PIC X 的长度按字节计）
+        List<String> out = run(source, null);
+        assertEquals(List.of("价格 ≥ 5" + " ".repeat(8), "编号"), out);
+        assertEquals(run(source.toString(), null), out);
+    }
+
+    @Test
+    void replacingComparesMappedAndCopybookTextAfterDecoding() throws IOException {
+        Files.write(dir.resolve("MSGS.cpy"), List.of("DISPLAY '旧值'.", "DISPLAY 'ASCII'."));
+        CharSequence source = open("MAIN.cob",
+                "IDENTIFICATION DIVISION.",
+                "PROGRAM-ID. MAIN.",
+                "PROCEDURE DIVISION.",
+                "    COPY MSGS REPLACING =='旧值'== BY =='新值'== =='ASCII'== BY =='ÄSCII'==.",
+                "    STOP RUN.");
+        assertEquals(List.of("新值", "ÄSCII"), run(source, new CopybookLibrary(List.of(dir))));
+    }
+}
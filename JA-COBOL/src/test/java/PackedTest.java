@@ -0,0 +1,145 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HexFormat;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/** 压缩字节上的运算：检查记录中的字节（符号半字节、截断、-0 规范化） */
+class PackedTest {
+    private final Storage s = Storage.allocate(16, false);
+
+    /** 在 off 处写入 PIC S9(digits) 或 9(digits) COMP-3 的值 */
+    private void put(int off, int digits, boolean signed, long value) {
+        Packed.put(s, off, Packed.length(digits), digits, signed, value);
+    }
+
+    private String bytes(int off, int len) {
+        byte[] b = new byte[len];
+        for (int i = 0; i < len; i++) b[i] = s.get(off + i);
+        return HexFormat.of().withUpperCase().formatHex(b);
+    }
+
+    @Test
+    void encodesDigitsAndSignNibble() {
+        put(0, 5, true, -12345);
+        assertEquals("12345D", bytes(0, 3));
+        put(0, 5, true, 42);
+        assertEquals("00042C", bytes(0, 3));
+        put(0, 5, false, 42);
+        assertEquals("00042F", bytes(0, 3));
+        assertEquals(42, Packed.decode(s, 0, 3));
+        // 偶数位数：首字节的高半字节不属于 PIC
+        put(0, 4, false, 12345);
+        assertEquals("02345F", bytes(0, 3));
+    }
+
+    @Test
+    void addCarriesAcrossBytes() {
+        put(0, 5, true, 999);
+        put(3, 1, true, 1);
+        Packed.add(s, 3, 1, false, 0, 3, 5, true);
+        assertEquals("01000C", bytes(0, 3));
+    }
+
+    @Test
+    void addTruncatesToTargetDigits() {
+        put(0, 3, false, 999);
+        put(2, 1, false, 1);
+        Packed.add(s, 2, 1, false, 0, 2, 3, false);
+        assertEquals("000F", bytes(0, 2));
+    }
+
+    @Test
+    void subtractCrossesZeroAndNormalisesNegativeZero() {
+        put(0, 3, true, 5);
+        put(2, 3, true, 12);
+        Packed.add(s, 2, 2, true, 0, 2, 3, true);
+        assertEquals("007D", bytes(0, 2));
+        put(2, 3, true, -7);
+        Packed.add(s, 2, 2, false, 0, 2, 3, true);     // -7 + -7
+        assertEquals("014D", bytes(0, 2));
+        put(2, 3, true, -14);
+        Packed.add(s, 2, 2, true, 0, 2, 3, true);      // -14 - -14 = +0
+        assertEquals("000C", bytes(0, 2));
+    }
+
+    @Test
+    void multiplyKeepsSignAndTruncates() {
+        put(0, 5, true, 123);
+        put(3, 3, true, -45);
+        Packed.multiply(s, 3, 2, 0, 3, 5, true);
+        assertEquals("05535D", bytes(0, 3));
+        Packed.multiply(s, 3, 2, 0, 3, 5, true);      // -5535 * -45 = 249075，截成 5 位
+        assertEquals("49075C", bytes(0, 3));
+    }
+
+    @Test
+    void moveRealignsDigits() {
+        put(0, 5, true, -12345);
+        Packed.move(s, 0, 3, 3, 2, 3, true);
+        assertEquals("345D", bytes(3, 2));
+        Packed.move(s, 0, 3, 5, 3, 4, false);
+        assertEquals("02345F", bytes(5, 3));
+        assertEquals(2345, Packed.decode(s, 5, 3));
+    }
+
+    @Test
+    void compareTreatsNegativeZeroAsZero() {
+        put(0, 3, true, 0);
+        s.set(1, (byte) 0x0D);      // -0
+        put(2, 3, true, 0);
+        assertEquals(0, Packed.compare(s, 0, 2, 2, 2));
+        put(0, 3, true, -3);
+        put(2, 5, true, 2);
+        assertTrue(Packed.compare(s, 0, 2, 2, 3) < 0);
+        assertTrue(Packed.compare(s, 2, 3, 0, 2) > 0);
+        assertTrue(Packed.valid(s, 2, 3));
+    }
+
+    @Test
+    void programArithmeticOnPackedFields() {
+        List<String> out = Programs.run("""
+                IDENTIFICATION DIVISION.
+                PROGRAM-ID. PK.
+                DATA DIVISION.
+                WORKING-STORAGE SECTION.
+                01 A PIC S9(5) COMP-3 VALUE 100.
+                01 B PIC S9(3) COMP-3 VALUE -250.
+                01 C PIC 9(3) COMP-3 VALUE 998.
+                PROCEDURE DIVISION.
+                    ADD B TO A.
+                    DISPLAY A.
+                    MULTIPLY 3 BY A.
+                    DISPLAY A.
+                    ADD 5 TO C.
+                    DISPLAY C.
+                    IF A < B
+                        DISPLAY 'LESS'
+                    END-IF.
+                    STOP RUN.
+                """);
+        assertEquals(List.of("-150", "-450", "3", "LESS"), out);
+    }
+
+    @ParameterizedTest(name = "{0} / {1}")
+    @CsvSource(delimiter = '|', value = {
+            "PIC S9(5)V99 COMP-3 VALUE 1234    | DISPLAY AMT             | UNSUPPORTED PICTURE: S9(5)V99",
+            "PIC S9(5)PP COMP-3                | DISPLAY AMT             | UNSUPPORTED PICTURE: S9(5)PP",
+            "PIC S9(5) COMP-3 VALUE 12.34      | DISPLAY AMT             | UNSUPPORTED DECIMAL LITERAL: 12.34",
+            "PIC S9(5) COMP-3                  | MOVE 1.25 TO AMT        | UNSUPPORTED DECIMAL LITERAL: 1.25",
+            "PIC S9(5) COMP-3                  | ADD 2.5 TO AMT          | UNSUPPORTED DECIMAL LITERAL: 2.5",
+            "PIC S9(5) COMP-3                  | COMPUTE AMT = AMT*1.05  | UNSUPPORTED DECIMAL LITERAL: 1.05",
+            "PIC S9(5) COMP-3                  | IF AMT > 0.5 DISPLAY AMT END-IF | UNSUPPORTED DECIMAL LITERAL: 0.5",
+    })
+    void decimalAmountsFailAtCompileTime(String declaration, String statement, String reported) {
+        // 没有小数位：不支持的金额在编译时报错，不会被悄悄存成 0
+        CobolInterpreter.CobolError e = assertThrows(CobolInterpreter.CobolError.class, () -> CobolProgram.compile(List.of(
+                "DATA DIVISION.", "WORKING-STORAGE SECTION.", "01 AMT " + declaration + ".",
+                "PROCEDURE DIVISION.", "    " + statement + ".", "    STOP RUN.")));
+        assertEquals(reported, e.getMessage());
+    }
+}
@@ -0,0 +1,130 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 编译缓存：命中时读入文件而不重写；成员内容、格式、键或版本不符以及文件损坏时重新编译并覆盖。
+ * 缓存文件的修改时间先设成 0，之后仍为 0 说明是命中，否则是重新编译后写入的
+ */
+class ProgramCacheTest {
+    private static final FileTime UNTOUCHED = FileTime.fromMillis(0);
+
+    @TempDir
+    Path dir;
+
+    private static final String SOURCE = """
+                   IDENTIFICATION DIVISION.
+                   PROGRAM-ID. CACHED.
+                   PROCEDURE DIVISION.
+                       DISPLAY 'HELLO'.
+                       STOP RUN.
+            """;
+
+    private Path cacheDir() { return dir.resolve("cache"); }
+
+    private Path cacheFile(String source, boolean fixed, CopybookLibrary copybooks) {
+        return cacheDir().resolve(HexFormat.of().formatHex(ProgramCache.hash(source, fixed, copybooks)) + ".jcc");
+    }
+
+    private List<String> run(String source, boolean fixed, CopybookLibrary copybooks) {
+        return Programs.runBothTiers(new ProgramCache(cacheDir()).compile(source, fixed, copybooks));
+    }
+
+    /** 编译一次写入缓存，再把修改时间设成 0 */
+    private Path cached(String source, boolean fixed, CopybookLibrary copybooks) throws IOException {
+        run(source, fixed, copybooks);
+        Path file = cacheFile(source, fixed, copybooks);
+        Files.setLastModifiedTime(file, UNTOUCHED);
+        return file;
+    }
+
+    @Test
+    void sameSourceIsReadFromTheCache() throws IOException {
+        Path file = cached(SOURCE, false, null);
+        assertEquals(List.of("HELLO"), run(SOURCE, false, null));
+        assertEquals(UNTOUCHED, Files.getLastModifiedTime(file));
+    }
+
+    @Test
+    void changedCopybookMemberInvalidatesTheEntry() throws IOException {
+        Path lib = Files.createDirectories(dir.resolve("lib"));
+        Files.write(lib.resolve("MSG.cpy"), List.of("DISPLAY 'V1'."));
+        CopybookLibrary copybooks = new CopybookLibrary(List.of(lib));
+        String source = "PROCEDURE DIVISION.\n    COPY MSG.\n    STOP RUN.\n";
+        Path file = cached(source, false, copybooks);
+        assertEquals(List.of("V1"), run(source, false, copybooks));
+        assertEquals(UNTOUCHED, Files.getLastModifiedTime(file));
+
+        // 键只含源码与库目录，成员改过时靠记录的摘要发现
+        Files.write(lib.resolve("MSG.cpy"), List.of("DISPLAY 'V2'."));
+        Files.setLastModifiedTime(lib.resolve("MSG.cpy"), FileTime.fromMillis(System.currentTimeMillis() + 2000));
+        assertEquals(List.of("V2"), run(source, false, new CopybookLibrary(List.of(lib))));
+        assertNotEquals(UNTOUCHED, Files.getLastModifiedTime(file));
+    }
+
+    @Test
+    void fixedAndFreeFormatHaveSeparateEntries() throws IOException {
+        // 第 7 列是空格、正文从第 8 列开始的源码在两种格式下都能编译
+        assertNotEquals(cacheFile(SOURCE, false, null), cacheFile(SOURCE, true, null));
+        Path free = cached(SOURCE, false, null);
+        assertEquals(List.of("HELLO"), run(SOURCE, true, null));
+        assertEquals(UNTOUCHED, Files.getLastModifiedTime(free));
+        try (Stream<Path> files = Files.list(cacheDir())) {
+            assertEquals(2, files.filter(f -> f.toString().endsWith(".jcc")).count());
+        }
+    }
+
+    @Test
+    void otherVersionIsRecompiled() throws IOException {
+        Path file = cached(SOURCE, false, null);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[7]++;     // 魔数之后的格式版本
+        Files.write(file, bytes);
+        Files.setLastModifiedTime(file, UNTOUCHED);
+        assertEquals(List.of("HELLO"), run(SOURCE, false, null));
+        assertNotEquals(UNTOUCHED, Files.getLastModifiedTime(file));
+    }
+
+    @Test
+    void entryForAnotherKeyIsRecompiled() throws IOException {
+        // 文件名对得上但头部的键不同（构建指纹不同的解释器写的、或被拷错的文件）时不读入
+        String other = SOURCE.replace("HELLO", "OTHER");
+        Path file = cacheFile(SOURCE, false, null);
+        Files.copy(cached(other, false, null), file);
+        Files.setLastModifiedTime(file, UNTOUCHED);
+        assertEquals(List.of("HELLO"), run(SOURCE, false, null));
+        assertNotEquals(UNTOUCHED, Files.getLastModifiedTime(file));
+    }
+
+    @Test
+    void truncatedOrCorruptFileIsRecompiled() throws IOException {
+        Path file = cached(SOURCE, false, null);
+        byte[] bytes = Files.readAllBytes(file);
+        for (byte[] broken : List.of(
+                Arrays.copyOf(bytes, 20),                   // 头部不完整
+                Arrays.copyOf(bytes, bytes.length / 2),     // 对象流不完整
+                garbageAfterHeader(bytes))) {
+            Files.write(file, broken);
+            Files.setLastModifiedTime(file, UNTOUCHED);
+            assertEquals(List.of("HELLO"), run(SOURCE, false, null));
+            assertNotEquals(UNTOUCHED, Files.getLastModifiedTime(file));
+        }
+    }
+
+    /** 头部（魔数、版本、键）完好，对象流换成无意义的字节 */
+    private static byte[] garbageAfterHeader(byte[] bytes) {
+        byte[] broken = bytes.clone();
+        Arrays.fill(broken, 40, broken.length, (byte) 0x7F);
+        return broken;
+    }
+}
@@ -0,0 +1,43 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/** 测试用的程序：src/test/resources/programs 中的源码，或直接写在测试里的源码 */
+final class Programs {
+    private Programs() {}
+
+    /** programs/name.cob 的各行 */
+    static List<String> lines(String name) {
+        try (InputStream in = Programs.class.getResourceAsStream("/programs/" + name + ".cob")) {
+            if (in == null) throw new IllegalArgumentException("no test program " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** 编译并用解释器运行，没有 ACCEPT 输入；返回 DISPLAY 的各行 */
+    static List<String> run(String source) {
+        return run(CobolProgram.compile(source.lines().toList()), false);
+    }
+
+    static List<String> run(CobolProgram program, boolean bytecode) {
+        return new CobolRun(program, false, Collections.emptyIterator()).run(bytecode);
+    }
+
+    /** 编译后用解释器与字节码层各运行一次，两者的输出必须相同；返回 DISPLAY 的各行 */
+    static List<String> runBothTiers(String source) {
+        return runBothTiers(CobolProgram.compile(source.lines().toList()));
+    }
+
+    static List<String> runBothTiers(CobolProgram program) {
+        List<String> out = run(program, false);
+        assertEquals(out, run(program, true), "bytecode tier");
+        return out;
+    }
+}
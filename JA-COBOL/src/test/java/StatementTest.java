@@ -0,0 +1,194 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * 语句按记号切分：字面量中的句点与空格保留，下标可以跨记号，结束句子的只有句点记号；
+ * 空语句与认得但没有实现的动词
+ */
+class StatementTest {
+    private static List<String> run(String procedure) {
+        return Programs.runBothTiers(compile(procedure));
+    }
+
+    private static CobolProgram compile(String procedure) {
+        String source = """
+                IDENTIFICATION DIVISION.
+                PROGRAM-ID. STMT.
+                DATA DIVISION.
+                WORKING-STORAGE SECTION.
+                01 I PIC 9(2) VALUE 2.
+                01 J PIC 9(2) VALUE 3.
+                01 T PIC X(8).
+                01 GRID.
+                   05 ROW OCCURS 3 TIMES.
+                      10 CELL PIC S9(3) OCCURS 4 TIMES.
+                PROCEDURE DIVISION.
+                """ + procedure;
+        return CobolProgram.compile(source.lines().toList());
+    }
+
+    @Test
+    void periodsInsideLiteralsAreKept() {
+        assertEquals(List.of("A.B", "1. 2.", "X.Y     ", "EQ"), run("""
+                    DISPLAY 'A.B'.
+                    DISPLAY '1. 2.'
+                    MOVE 'X.Y' TO T.
+                    DISPLAY T.
+                    IF T = 'X.Y' DISPLAY 'EQ'.
+                    STOP RUN.
+                """));
+    }
+
+    @Test
+    void literalsInUndeclaredVariablesKeepPeriods() {
+        assertEquals(List.of("V.1", "V.1"), run("""
+                    MOVE 'V.1' TO V.
+                    DISPLAY V.
+                    MOVE V TO W.
+                    DISPLAY W.
+                """));
+    }
+
+    @Test
+    void subscriptsMaySpanTokens() {
+        assertEquals(List.of("-12", "-23", "-23"), run("""
+                    MOVE -17 TO CELL(I, J).
+                    ADD 5 TO CELL(2, 3).
+                    DISPLAY CELL(I, J).
+                    COMPUTE CELL(1, 1) = CELL(I, J) * 2 + 1.
+                    DISPLAY CELL(1, 1).
+                    EVALUATE CELL(1, 1)
+                      WHEN -23 DISPLAY CELL(1, 1)
+                    END-EVALUATE.
+                """));
+    }
+
+    @Test
+    void performClausesAreKeywords() {
+        assertEquals(List.of("1", "2", "1", "2", "GO"), run("""
+                MAIN.
+                    PERFORM VARYING I FROM 1 BY 1 UNTIL I > 2
+                      DISPLAY I
+                    END-PERFORM.
+                    PERFORM SHOW VARYING I FROM 1 BY 1 UNTIL I > 2.
+                    GO TO DONE.
+                SHOW.
+                    DISPLAY I.
+                DONE.
+                    DISPLAY 'GO'.
+                """));
+    }
+
+    @Test
+    void exitAndContinueDoNothing() {
+        assertEquals(List.of("ELSE", "AFTER", "END"), run("""
+                MAIN.
+                    IF I = 2
+                      CONTINUE
+                    END-IF.
+                    IF I = 3
+                      CONTINUE
+                    ELSE
+                      DISPLAY 'ELSE'
+                    END-IF.
+                    PERFORM P1 THRU P1-EXIT.
+                    DISPLAY 'END'.
+                    GOBACK.
+                P1.
+                    CONTINUE.
+                    DISPLAY 'AFTER'.
+                P1-EXIT.
+                    EXIT.
+                """));
+    }
+
+    @Test
+    void lowercaseProgram() {
+        // 段落名与 PERFORM / GO TO 的目标一样不分大小写
+        assertEquals(List.of("2", "3", "4", "done"), Programs.runBothTiers("""
+                identification division.
+                program-id. lower.
+                data division.
+                working-storage section.
+                01 k pic 9(2) value 1.
+                procedure division.
+                main-para.
+                    perform bump-para thru show-para 3 times.
+                    go to end-para.
+                bump-para.
+                    add 1 to k.
+                show-para.
+                    display k.
+                end-para.
+                    display 'done'.
+                    stop run.
+                """));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            "CALL 'SUB' USING T                     | CALL",
+            "SET I TO 1                             | SET",
+            "INITIALIZE T                           | INITIALIZE",
+            "INSPECT T TALLYING I FOR ALL 'A'       | INSPECT",
+            "STRING T DELIMITED BY SIZE INTO T      | STRING",
+            "UNSTRING T INTO T                      | UNSTRING",
+            "EXIT PROGRAM                           | EXIT PROGRAM",
+            "EXIT PERFORM                           | EXIT PERFORM",
+    })
+    void unimplementedVerbsFailAtCompileTime(String statement, String reported) {
+        CobolInterpreter.CobolError e = assertThrows(CobolInterpreter.CobolError.class,
+                () -> compile("    DISPLAY 'BEFORE'.\n    " + statement + ".\n    STOP RUN.\n"));
+        assertEquals("UNSUPPORTED STATEMENT: " + reported, e.getMessage());
+    }
+    @Test
+    void displayShowsEveryOperandInOrder() {
+        assertEquals(List.of("I=2 J=3", "T=X.Y     !", "-17 42"), run("""
+                    DISPLAY 'I=' I ' J=' J.
+                    MOVE 'X.Y' TO T.
+                    DISPLAY 'T=' T '!'.
+                    MOVE -17 TO CELL(I, J).
+                    DISPLAY CELL(I, J) ' ' 42.
+                """));
+    }
+
+    @Test
+    void everyReceivingFieldIsSet() {
+        assertEquals(List.of("5 5 5", "6 6 6", "12 4", "3 1"), run("""
+                    MOVE 5 TO I J V.
+                    DISPLAY I ' ' J ' ' V.
+                    ADD 1 TO I J V.
+                    DISPLAY I ' ' J ' ' V.
+                    COMPUTE I J = 2 * 2.
+                    MULTIPLY 3 BY I.
+                    DISPLAY I ' ' J.
+                    SUBTRACT 3 FROM J.
+                    DIVIDE 4 INTO I.
+                    DISPLAY I ' ' J.
+                """));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            "ADD 1 TO I GARBAGE FOO BAR             | UNDEFINED RECEIVING FIELD: GARBAGE",
+            "MOVE I TO NOSUCH                       | UNDEFINED RECEIVING FIELD: NOSUCH",
+            "DIVIDE 2 BY I                          | UNEXPECTED TOKENS IN DIVIDE: BY I",
+            "MOVE I J                               | UNEXPECTED TOKENS IN MOVE: J",
+            "COMPUTE I = J K                        | UNEXPECTED TOKENS IN COMPUTE: K",
+            "GO TO DONE AGAIN                       | UNEXPECTED TOKENS IN GO: AGAIN",
+            "MOVE TO I                              | INCOMPLETE STATEMENT: MOVE TO I",
+            "ADD 1 TO                               | INCOMPLETE STATEMENT: ADD 1 TO",
+            "FOO BAR                                | NOT A STATEMENT: FOO BAR",
+    })
+    void leftoverTokensFailAtCompileTime(String statement, String reported) {
+        // 多出来的记号不再被悄悄丢掉
+        CobolInterpreter.CobolError e = assertThrows(CobolInterpreter.CobolError.class,
+                () -> compile("MAIN.\n    DISPLAY I.\n    " + statement + ".\n    STOP RUN.\nDONE.\n    DISPLAY J.\n"));
+        assertEquals(reported, e.getMessage());
+    }
+}